@@ -0,0 +1,60 @@
+package main;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import utility.ReleaseSetStore;
+import utility.ReleaseSets;
+
+import java.util.concurrent.TimeUnit;
+
+//One walk forward cell on the checked in bookkeeper release sets
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EvaluationBenchmark {
+    private static final String PROJECT = "bookkeeper";
+    private static final int RELEASES = 8;
+
+    @Param({"Naive Bayes", "Random Forest", "IBk"})
+    public String classifier;
+
+    @Param({EvaluationCell.NO_SAMPLING, EvaluationCell.SMOTE})
+    public String sampling;
+
+    @Param({EvaluationCell.NO_SELECTION, EvaluationCell.BACKWARD})
+    public String selection;
+
+    @Param({"4"})
+    public int numTraining;
+
+    private ReleaseSetStore store;
+    private SelectionCache selections;
+    private int[] stats;
+    private int numInstances;
+
+    @Setup
+    public void setUp() throws Exception {
+        this.store = ReleaseSets.createStore(PROJECT, RELEASES);
+        this.stats = Measurements.computeBuggy(this.store, this.numTraining);
+        this.numInstances = this.store.getData().numInstances();
+        //One use per entry: every invocation searches again, as the first cell of a step does
+        this.selections = new SelectionCache(this.store, 1);
+    }
+
+    @Benchmark
+    public String computeClassifier() throws Exception {
+        return new EvaluationCell(PROJECT, this.numTraining, this.numInstances, this.store, this.selections, null, this.stats, this.classifier, this.sampling, this.selection).call();
+    }
+}
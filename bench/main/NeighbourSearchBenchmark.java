@@ -0,0 +1,82 @@
+package main;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import utility.DatasetBuilder;
+import utility.PathDictionary;
+import utility.ReleaseSetStore;
+import utility.ReleaseSets;
+import utility.SyntheticReleases;
+import weka.classifiers.lazy.IBk;
+import weka.core.Instances;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+//IBk built on a training window and applied to the next release, with every neighbour search
+//The setup checks that the search predicts exactly as the linear scan
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class NeighbourSearchBenchmark {
+    private static final int TESTING = 2000;
+
+    @Param({Measurements.LINEAR_SEARCH, "balltree"})
+    public String search;
+
+    //storm: last step of the checked in release sets, otherwise the size of a synthetic training window
+    @Param({"storm", "10000", "30000"})
+    public String training;
+
+    private Instances trainingSet;
+    private Instances testingSet;
+
+    @Setup
+    public void setUp() throws Exception {
+        ReleaseSetStore store;
+        PathDictionary paths;
+
+        if (this.training.equals("storm")) {
+            store = ReleaseSets.createStore("storm", 14);
+            this.trainingSet = store.copyTraining(13);
+            this.testingSet = store.copyRelease(14);
+        } else {
+            paths = SyntheticReleases.createPaths(Integer.parseInt(this.training));
+            this.trainingSet = DatasetBuilder.build("training", SyntheticReleases.createRelease(paths, Integer.parseInt(this.training), 1));
+            this.testingSet = DatasetBuilder.build("testing", SyntheticReleases.createRelease(paths, TESTING, 2));
+        }
+
+        if (!Arrays.deepEquals(predict(Measurements.LINEAR_SEARCH), predict(this.search))) {
+            throw new IllegalStateException(this.search + " predictions differ from the linear scan");
+        }
+    }
+
+    private double[][] predict(String neighbourSearch) throws Exception {
+        IBk ibk = new IBk();
+        double[][] predictions = new double[this.testingSet.numInstances()][];
+
+        ibk.setNearestNeighbourSearchAlgorithm(Measurements.createNeighbourSearch(neighbourSearch));
+        ibk.buildClassifier(this.trainingSet);
+        for (int i = 0; i < predictions.length; i++) {
+            predictions[i] = ibk.distributionForInstance(this.testingSet.instance(i));
+        }
+        return predictions;
+    }
+
+    @Benchmark
+    public double[][] buildAndPredict() throws Exception {
+        return predict(this.search);
+    }
+}
@@ -0,0 +1,85 @@
+package resources;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import utility.PathDictionary;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+//Release of every commit date and of every ticket version, as getNextRelease and getReleaseByName
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReleaseTimelineBenchmark {
+    private static final LocalDate START = LocalDate.of(2011, 1, 1);
+
+    @Param({"20", "200"})
+    public int releases;
+
+    @Param({"10000"})
+    public int commits;
+
+    private ReleaseTimeline timeline;
+    private LocalDate[] dates;
+    private String[] names;
+
+    @Setup
+    public void setUp() {
+        List<Release> sorted = new ArrayList<>();
+        PathDictionary paths = new PathDictionary();
+        Random random = new Random(1);
+        Release release;
+
+        for (int i = 1; i <= this.releases; i++) {
+            release = new Release(i, "4." + i + ".0", START.plusDays(30L * i), paths);
+            release.setIndex(i);
+            sorted.add(release);
+        }
+        this.timeline = new ReleaseTimeline(sorted);
+
+        this.dates = new LocalDate[this.commits];
+        this.names = new String[this.commits];
+        for (int i = 0; i < this.commits; i++) {
+            this.dates[i] = START.plusDays(random.nextInt(30 * (this.releases + 1)));
+            this.names[i] = "4." + (1 + random.nextInt(this.releases)) + ".0";
+        }
+    }
+
+    @Benchmark
+    public int getNext() {
+        int found = 0;
+
+        for (LocalDate date : this.dates) {
+            if (this.timeline.getNext(date) != null) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    @Benchmark
+    public int getByName() {
+        int found = 0;
+
+        for (String name : this.names) {
+            found = found + this.timeline.getByName(name).getIndex();
+        }
+        return found;
+    }
+}
@@ -0,0 +1,70 @@
+package utility;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+//Bugginess rows of one release encoded and written as prepareCSV does
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CsvBenchmark {
+    @Param({"1000", "10000", "100000"})
+    public int files;
+
+    private ReleaseMetrics metrics;
+    private Path file;
+
+    @Setup
+    public void setUp() throws IOException {
+        this.metrics = SyntheticReleases.createRelease(SyntheticReleases.createPaths(this.files), this.files, 1);
+        this.file = Files.createTempFile("bugginess", ".csv");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(this.file);
+    }
+
+    @Benchmark
+    public long writeRows() throws IOException {
+        CsvRow row = new CsvRow();
+        ReleaseMetrics.Cursor cursor = this.metrics.cursor();
+
+        try (CsvSink sink = new CsvSink(this.file)) {
+            while (cursor.next()) {
+                row.field(1)
+                        .field(cursor.getName())
+                        .field(cursor.getNumOfAuthors())
+                        .field(cursor.getTouchingCommits())
+                        .field(cursor.getAge())
+                        .field(cursor.getSize())
+                        .field(cursor.getBugFixes())
+                        .field(cursor.getAddedLoc())
+                        .field(cursor.getChangeSetSize())
+                        .field(cursor.getMaxChangeSetSize())
+                        .field(cursor.getAvgChangeSetSize())
+                        .field(cursor.isBuggy() ? "Yes" : "No")
+                        .writeTo(sink);
+            }
+            return sink.getRows();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package utility;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import weka.core.Instances;
+import weka.core.converters.ArffSaver;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+//Release sets built from the metrics and written as ARFF, as the former csvToArff step
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DatasetBenchmark {
+    @Param({"1000", "10000", "100000"})
+    public int files;
+
+    private ReleaseMetrics metrics;
+    private Instances dataset;
+    private File file;
+
+    @Setup
+    public void setUp() throws IOException {
+        this.metrics = SyntheticReleases.createRelease(SyntheticReleases.createPaths(this.files), this.files, 1);
+        this.dataset = DatasetBuilder.build("synthetic", this.metrics);
+        this.file = Files.createTempFile("release", ".arff").toFile();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(this.file.toPath());
+    }
+
+    @Benchmark
+    public Instances build() {
+        return DatasetBuilder.build("synthetic", this.metrics);
+    }
+
+    @Benchmark
+    public long writeArff() throws IOException {
+        ArffSaver saver = new ArffSaver();
+
+        saver.setInstances(this.dataset);
+        saver.setFile(this.file);
+        saver.writeBatch();
+        return this.file.length();
+    }
+}
@@ -0,0 +1,68 @@
+package utility;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import weka.attributeSelection.AttributeSelection;
+import weka.attributeSelection.CfsSubsetEval;
+import weka.attributeSelection.GreedyStepwise;
+import weka.core.Instances;
+
+import java.util.concurrent.TimeUnit;
+
+//Selection of the last walk forward step of storm: weka's CFS on the whole window against one more fold
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IncrementalCfsBenchmark {
+    private static final String PROJECT = "storm";
+    private static final int RELEASES = 14;
+
+    @Param({"13"})
+    public int numTraining;
+
+    private ReleaseSetStore store;
+    private IncrementalCfs previous;
+    private Instances release;
+
+    @Setup
+    public void setUp() throws Exception {
+        this.store = ReleaseSets.createStore(PROJECT, RELEASES);
+        this.previous = new IncrementalCfs(this.store.getData());
+        for (int index = 1; index < this.numTraining; index++) {
+            this.previous.add(this.store.copyRelease(index));
+        }
+        this.release = this.store.copyRelease(this.numTraining);
+    }
+
+    @Benchmark
+    public int[] cfsSubsetEval() throws Exception {
+        AttributeSelection selection = new AttributeSelection();
+        GreedyStepwise search = new GreedyStepwise();
+
+        search.setSearchBackwards(true);
+        selection.setEvaluator(new CfsSubsetEval());
+        selection.setSearch(search);
+        selection.SelectAttributes(this.store.copyTraining(this.numTraining));
+        return selection.selectedAttributes();
+    }
+
+    @Benchmark
+    public int[] incremental() {
+        IncrementalCfs step = this.previous.copy();
+
+        step.add(this.release);
+        return step.select();
+    }
+}
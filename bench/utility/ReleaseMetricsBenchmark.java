@@ -0,0 +1,76 @@
+package utility;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+//Per commit updates of the release metrics: rows added or found by path, then changed
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReleaseMetricsBenchmark {
+    @Param({"1000", "10000", "100000"})
+    public int files;
+
+    private PathDictionary paths;
+    private ReleaseMetrics metrics;
+    private String[] names;
+
+    @Setup
+    public void setUp() {
+        this.paths = SyntheticReleases.createPaths(this.files);
+        this.metrics = SyntheticReleases.createRelease(this.paths, this.files, 1);
+        this.names = new String[this.files];
+        for (int i = 0; i < this.files; i++) {
+            this.names[i] = SyntheticReleases.getPath(i);
+        }
+    }
+
+    //A commit listing every file of the tree, as findExistingFiles
+    @Benchmark
+    public ReleaseMetrics addExisting() {
+        ReleaseMetrics release = new ReleaseMetrics(this.paths);
+        int row;
+
+        for (String name : this.names) {
+            row = release.add(this.paths.getId(name));
+            release.setSize(row, name.length());
+            release.setNumOfAuthors(row, 1);
+        }
+        return release;
+    }
+
+    @Benchmark
+    public int findByPath() {
+        int found = 0;
+
+        for (String name : this.names) {
+            found = found + this.metrics.find(name);
+        }
+        return found;
+    }
+
+    //Changed files of the commits, as findChangedFiles
+    @Benchmark
+    public int addChangeSetSize() {
+        for (int row = 0; row < this.files; row++) {
+            this.metrics.incrTouchingCommits(row);
+            this.metrics.addChangeSetSize(row, row & 7);
+            this.metrics.incrAddedLoc(row, 3);
+        }
+        return this.metrics.getAvgChangeSetSize(this.files - 1);
+    }
+}
@@ -0,0 +1,33 @@
+package utility;
+
+import weka.core.Instances;
+import weka.core.converters.ConverterUtils.DataSource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+//Checked in release sets of data/releaseSets, read from the working directory
+public class ReleaseSets {
+    private static final String PROPERTY = "user.dir";
+
+    private ReleaseSets() {
+    }
+
+    public static List<Instances> load(String projectName, int releases) throws Exception {
+        List<Instances> sets = new ArrayList<>();
+
+        for (int i = 1; i <= releases; i++) {
+            sets.add(DataSource.read(System.getProperty(PROPERTY) + "/data/releaseSets/" + projectName + "_release_" + i + ".arff"));
+        }
+        return sets;
+    }
+
+    public static ReleaseSetStore createStore(String projectName, int releases) throws Exception {
+        ReleaseSetStore store = new ReleaseSetStore();
+
+        for (Instances release : load(projectName, releases)) {
+            store.append(release);
+        }
+        return store;
+    }
+}
@@ -0,0 +1,45 @@
+package utility;
+
+import java.util.Random;
+
+//Synthetic release metrics of a given number of files, the same for every run with the same seed
+public class SyntheticReleases {
+    private static final int FILES_PER_PACKAGE = 50;
+
+    private SyntheticReleases() {
+    }
+
+    public static String getPath(int file) {
+        return "module" + (file % 7) + "/src/main/java/org/project/pkg" + (file / FILES_PER_PACKAGE) + "/File" + file + ".java";
+    }
+
+    public static PathDictionary createPaths(int files) {
+        PathDictionary paths = new PathDictionary();
+
+        for (int i = 0; i < files; i++) {
+            paths.getId(getPath(i));
+        }
+        return paths;
+    }
+
+    public static ReleaseMetrics createRelease(PathDictionary paths, int files, long seed) {
+        ReleaseMetrics metrics = new ReleaseMetrics(paths);
+        Random random = new Random(seed);
+        int[] values = new int[8];
+        int row;
+
+        for (int i = 0; i < files; i++) {
+            row = metrics.add(i);
+            values[0] = random.nextInt(2000);
+            values[1] = random.nextInt(20);
+            values[2] = 1 + random.nextInt(6);
+            values[3] = random.nextInt(10);
+            values[4] = random.nextInt(40);
+            values[5] = values[4] + random.nextInt(10);
+            values[6] = values[4] / 2;
+            values[7] = random.nextInt(500);
+            metrics.set(row, random.nextInt(5) == 0, values, random.nextInt(300));
+        }
+        return metrics;
+    }
+}
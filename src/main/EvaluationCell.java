@@ -0,0 +1,167 @@
+package main;
+
+import weka.classifiers.Classifier;
+import weka.classifiers.Evaluation;
+import weka.classifiers.meta.FilteredClassifier;
+import utility.ReleaseSetStore;
+import utility.RunMetrics;
+import weka.core.Instances;
+import weka.filters.Filter;
+import weka.filters.supervised.instance.Resample;
+import weka.filters.supervised.instance.SMOTE;
+import weka.filters.supervised.instance.SpreadSubsample;
+
+import java.util.concurrent.Callable;
+
+public class EvaluationCell implements Callable<String> {
+    public static final String NO_SAMPLING = "No Sampling";
+    public static final String UNDERSAMPLING = "Undersampling";
+    public static final String OVERSAMPLING = "Oversampling";
+    public static final String SMOTE = "SMOTE";
+    public static final String NO_SELECTION = "No Selection";
+    public static final String BACKWARD = "Backward Selection";
+    private final String projectName;
+    private final int numTraining;
+    private final int numInstances;
+    private final ReleaseSetStore store;
+    private final SelectionCache selections;
+    private final WarmStart warmStart;
+    private final int[] stats;
+    private final String classifier;
+    private final String sampling;
+    private final String selection;
+
+    //The store is shared among all the cells and never modified
+    public EvaluationCell(String projectName, int numTraining, int numInstances, ReleaseSetStore store, SelectionCache selections, WarmStart warmStart, int[] stats, String classifier, String sampling, String selection) {
+        this.projectName = projectName;
+        this.numTraining = numTraining;
+        this.numInstances = numInstances;
+        this.store = store;
+        this.selections = selections;
+        this.warmStart = warmStart;
+        this.stats = stats;
+        this.classifier = classifier;
+        this.sampling = sampling;
+        this.selection = selection;
+    }
+
+    private int getTrainingSize() {
+        return this.store.getTrainingSize(this.numTraining);
+    }
+
+    private Filter getSamplingFilter(Instances actTraining) throws Exception {
+        switch (this.sampling) {
+            case OVERSAMPLING:
+                Resample resample = new Resample();
+                resample.setNoReplacement(false);
+                String[] opt1 = new String[]{"-B", "1.0"};
+                String[] opt2 = new String[]{"-Z", Double.toString(Measurements.computeRatio(this.stats[0], this.stats[1], getTrainingSize()) * 100 * 2)};
+                resample.setOptions(opt1);
+
+                resample.setOptions(opt2);
+
+                resample.setInputFormat(actTraining);
+                return resample;
+            case UNDERSAMPLING:
+                SpreadSubsample spreadSubsample = new SpreadSubsample();
+                String[] opt = new String[]{"-M", "1.0"};
+                spreadSubsample.setOptions(opt);
+
+                spreadSubsample.setInputFormat(actTraining);
+                return spreadSubsample;
+            case SMOTE:
+                SMOTE smote = new SMOTE();
+                smote.setInputFormat(actTraining);
+                return smote;
+            default:
+                return null;
+        }
+    }
+
+    private Evaluation evaluate() throws Exception {
+        //Updated from the model of the previous step, if warm start is enabled and the classifier allows it
+        if (this.warmStart != null && this.sampling.equals(NO_SAMPLING) && this.selection.equals(NO_SELECTION) && this.warmStart.supports(this.classifier)) {
+            return this.warmStart.evaluate(this.classifier, this.numTraining);
+        }
+
+        //Every cell works on its own copies, so cells can run concurrently
+        Instances actTraining = this.store.copyTraining(this.numTraining);
+        Instances actTesting = this.store.copyRelease(this.numTraining + 1);
+        Classifier method = Measurements.getClassifier(this.classifier);
+        Filter filter = getSamplingFilter(actTraining);
+        Instances[] filteredData;
+        Evaluation eval;
+
+        if (this.selection.equals(BACKWARD)) {
+            filteredData = this.selections.get(this.numTraining);
+
+            actTraining = filteredData[0];
+            actTesting = filteredData[1];
+        }
+
+        if (filter == null) {
+            method.buildClassifier(actTraining);
+            eval = new Evaluation(actTraining);
+            eval.evaluateModel(method, actTesting);
+        } else {
+            FilteredClassifier fc = new FilteredClassifier();
+            fc.setClassifier(method);
+            fc.setFilter(filter);
+            fc.buildClassifier(actTraining);
+            eval = new Evaluation(actTraining);
+            eval.evaluateModel(fc, actTesting);
+        }
+
+        return eval;
+    }
+
+    @Override
+    public String call() throws Exception {
+        Evaluation eval;
+        StringBuilder row = new StringBuilder();
+
+        //Aggregated over the training windows of the same configuration
+        try {
+            eval = RunMetrics.time("evaluation/" + this.classifier + "/" + this.sampling + "/" + this.selection, this::evaluate);
+        } finally {
+            if (this.selection.equals(BACKWARD)) {
+                this.selections.release(this.numTraining);
+            }
+        }
+
+        row.append(this.projectName);
+        row.append(",");
+        row.append(this.numTraining);
+        row.append(",");
+        row.append(String.format("%.3f", (double) getTrainingSize() / (double) this.numInstances));
+        row.append(",");
+        row.append(String.format("%.3f", (double) this.stats[0] / (double) getTrainingSize()));
+        row.append(",");
+        row.append(String.format("%.3f", (double) this.stats[2] / (double) getTrainingSize()));
+        row.append(",");
+        row.append(this.classifier);
+        row.append(",");
+        row.append(this.sampling);
+        row.append(",");
+        row.append(this.selection);
+        row.append(",");
+        row.append(String.format("%.3f", eval.numTruePositives(0)));
+        row.append(",");
+        row.append(String.format("%.3f", eval.numFalsePositives(0)));
+        row.append(",");
+        row.append(String.format("%.3f", eval.numTrueNegatives(0)));
+        row.append(",");
+        row.append(String.format("%.3f", eval.numFalseNegatives(0)));
+        row.append(",");
+        row.append(String.format("%.3f", eval.precision(0)));
+        row.append(",");
+        row.append(String.format("%.3f", eval.recall(0)));
+        row.append(",");
+        row.append(String.format("%.3f", eval.areaUnderROC(0)));
+        row.append(",");
+        row.append(String.format("%.3f", eval.kappa()));
+        row.append("\n");
+
+        return row.toString();
+    }
+}
@@ -2,68 +2,95 @@ package main;
 
 import resources.Project;
 import resources.Release;
+import utility.Configuration;
+import utility.DatasetBuilder;
+import utility.ReleaseSetStore;
+import utility.RunMetrics;
 import weka.attributeSelection.CfsSubsetEval;
 import weka.attributeSelection.GreedyStepwise;
 import weka.classifiers.Classifier;
-import weka.classifiers.Evaluation;
 import weka.classifiers.bayes.NaiveBayes;
 import weka.classifiers.lazy.IBk;
-import weka.classifiers.meta.FilteredClassifier;
 import weka.classifiers.trees.RandomForest;
-import weka.core.Instance;
 import weka.core.Instances;
-import weka.core.converters.ConverterUtils;
+import weka.core.neighboursearch.BallTree;
+import weka.core.neighboursearch.LinearNNSearch;
+import weka.core.neighboursearch.NearestNeighbourSearch;
 import weka.filters.Filter;
 import weka.filters.supervised.attribute.AttributeSelection;
-import weka.filters.supervised.instance.Resample;
-import weka.filters.supervised.instance.SMOTE;
-import weka.filters.supervised.instance.SpreadSubsample;
 
 import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.logging.Logger;
 
 public class Measurements {
     private static final Logger logger = Logger.getLogger(Measurements.class.getName());
     private static int numInstances;
-    private static final String NO_SAMPLING = "No Sampling";
-    private static final String UNDERSAMPLING = "Undersampling";
-    private static final String OVERSAMPLING = "Oversampling";
-    private static final String SMOTE = "SMOTE";
-    private static final String NO_SELECTION = "No Selection";
-    private static final String BACKWARD = "Backward Selection";
+    private static final String[] CLASSIFIERS = {"Naive Bayes", "Random Forest", "IBk"};
+    private static final String[] SAMPLINGS = {EvaluationCell.NO_SAMPLING, EvaluationCell.OVERSAMPLING, EvaluationCell.UNDERSAMPLING, EvaluationCell.SMOTE};
+    private static final String[] SELECTIONS = {EvaluationCell.NO_SELECTION, EvaluationCell.BACKWARD};
     private static final String PROPERTY = "user.dir";
-    private static final String RELEASES_PATH = System.getProperty(PROPERTY) + "/data/releaseSets/";
+    static final String LINEAR_SEARCH = "linear";
 
     public static void main(String[] args) throws Exception {
 
         Project myProject = new Project(askForProjectName());
 
+        RunMetrics.time("run", () -> run(myProject));
+
+        //Where the time of the run went, to be compared with other runs
+        try {
+            RunMetrics.writeReport(Paths.get(System.getProperty(PROPERTY) + "/data/metrics"), myProject.getName());
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static void run(Project myProject) throws IOException {
+        //Resuming from the snapshot of the previous run, if any: the steps below only process what is new
+        RunMetrics.time("loadSnapshot", () -> {
+            if (Configuration.getBoolean("incremental", true) && myProject.loadSnapshot()) {
+                logger.info("Snapshot loaded, extracting new releases, tickets and commits only");
+            }
+        });
+
         //Extracting and validating project releases, sorted by date
-        myProject.extractReleases();
+        RunMetrics.time("extractReleases", () -> myProject.extractReleases());
 
         //Extracting tickets and setting IV, OV and FV.
-        myProject.extractTickets();
+        RunMetrics.time("extractTickets", () -> myProject.extractTickets());
 
         //Extracting commits with corresponding ticket, sorted by date.
         //Removed not computable tickets
-        myProject.extractCommits();
+        RunMetrics.time("extractCommits", () -> myProject.extractCommits());
 
         //Extracting all the files for every valid release
-        myProject.extractFiles();
-        numInstances = myProject.writeBugginess();
-        applyWeka(myProject);
+        RunMetrics.time("extractFiles", () -> myProject.extractFiles());
+        RunMetrics.time("saveSnapshot", () -> myProject.saveSnapshot());
+
+        numInstances = RunMetrics.time("writeBugginess", myProject::writeBugginess);
+        RunMetrics.time("applyWeka", () -> applyWeka(myProject));
     }
 
-    private static Instances[] computeSelection(Instances training, Instances testing) {
-        weka.filters.supervised.attribute.AttributeSelection filter = new AttributeSelection();
+    static AttributeSelection createSelectionFilter() {
+        AttributeSelection filter = new AttributeSelection();
         CfsSubsetEval subsetEval = new CfsSubsetEval();
         GreedyStepwise search = new GreedyStepwise();
         search.setSearchBackwards(true);
         filter.setEvaluator(subsetEval);
         filter.setSearch(search);
 
+        return filter;
+    }
+
+    static Instances[] computeSelection(AttributeSelection filter, Instances training, Instances testing) {
         //Applying attributes filter to new training and testing sets
         try {
             filter.setInputFormat(training);
@@ -83,151 +110,62 @@ public class Measurements {
         return new Instances[0];
     }
 
-    private static Classifier getClassifier(String classifier) {
-        switch (classifier) {
-            case "Naive Bayes":
-                return new NaiveBayes();
-            case "Random Forest":
-                return new RandomForest();
-            case "IBk":
-                return new IBk();
+    static String getNeighbourSearch() {
+        return Configuration.getString("ibk.search", LINEAR_SEARCH);
+    }
+
+    //Ball trees over the normalised attributes return the same neighbours, ties included, as the linear scan.
+    //Weka's KD-trees are left out: they miss neighbours tied at the k-th distance
+    static NearestNeighbourSearch createNeighbourSearch(String search) {
+        switch (search) {
+            case LINEAR_SEARCH:
+                return new LinearNNSearch();
+            case "balltree":
+                return new BallTree();
             default:
-                return null;
+                throw new IllegalArgumentException("Unknown neighbour search " + search);
         }
     }
 
-    private static void computeClassifier(String projectName, int numTraining, FileWriter csvWriter, Instances training, Instances testing, String classifier) {
-        FilteredClassifier fc = new FilteredClassifier();
-        Instances[] filteredData;
-        Instances actTraining;
-        Instances actTesting;
-        Evaluation eval;
-        String sampling = "";
-        Classifier method;
-
-        method = getClassifier(classifier);
-
-        int[] stats = computeBuggy(training, testing);
-        fc.setClassifier(method);
-
-        for (int n = 1; n < 5; n++) {
-            actTraining = training;
-            actTesting = testing;
-
-            try {
-                switch (n) {
-                    //No Sampling
-                    case 1:
-                        sampling = NO_SAMPLING;
-                        break;
-                    //Undersampling
-                    case 2:
-                        sampling = OVERSAMPLING;
-
-                        Resample resample = new Resample();
-                        resample.setNoReplacement(false);
-                        String[] opt1 = new String[]{"-B", "1.0"};
-                        String[] opt2 = new String[]{"-Z", Double.toString(computeRatio(stats[0], stats[1], training.size()) * 100 * 2)};
-                        resample.setOptions(opt1);
-
-                        resample.setOptions(opt2);
-
-                        resample.setInputFormat(actTraining);
-                        fc.setFilter(resample);
-
-                        break;
-                    //Oversampling
-                    case 3:
-                        sampling = UNDERSAMPLING;
-
-                        SpreadSubsample spreadSubsample = new SpreadSubsample();
-                        String[] opt = new String[]{"-M", "1.0"};
-                        spreadSubsample.setOptions(opt);
-
-                        spreadSubsample.setInputFormat(actTraining);
-                        fc.setFilter(spreadSubsample);
-
-                        break;
-                    //SMOTE
-                    case 4:
-                        sampling = SMOTE;
-
-                        SMOTE smote = new SMOTE();
-                        smote.setInputFormat(actTraining);
-                        fc.setFilter(smote);
-
-                        break;
-                    default:
-                        System.exit(1);
-                }
-
-                for (int m = 1; m < 3; m++) {
-                    csvWriter.append(projectName);
-                    csvWriter.append(",");
-                    csvWriter.append(Integer.toString(numTraining));
-                    csvWriter.append(",");
-                    csvWriter.append(String.format("%.3f", (double) training.size() / (double) numInstances));
-                    csvWriter.append(",");
-                    csvWriter.append(String.format("%.3f", (double) stats[0] / (double) training.size()));
-                    csvWriter.append(",");
-                    csvWriter.append(String.format("%.3f", (double) stats[2] / (double) training.size()));
-                    csvWriter.append(",");
-                    csvWriter.append(classifier);
-                    csvWriter.append(",");
-                    csvWriter.append(sampling);
-                    csvWriter.append(",");
-
-                    if (m == 1) {
-                        //No Selection
-                        csvWriter.append(NO_SELECTION);
-                        csvWriter.append(",");
-                    } else {
-                        //Backward search
-                        csvWriter.append(BACKWARD);
-                        csvWriter.append(",");
-
-                        filteredData = computeSelection(actTraining, actTesting);
-
-                        actTraining = filteredData[0];
-                        actTesting = filteredData[1];
-                    }
-
-                    if (sampling.equals(NO_SAMPLING)) {
-                        assert method != null;
+    private static int getEvaluationThreads() {
+        return Configuration.getInt("evaluation.threads", Runtime.getRuntime().availableProcessors());
+    }
 
-                        method.buildClassifier(actTraining);
-                        eval = new Evaluation(actTraining);
-                        eval.evaluateModel(method, actTesting);
-                    } else {
-                        fc.buildClassifier(actTraining);
-                        eval = new Evaluation(actTraining);
-                        eval.evaluateModel(fc, actTesting);
-                    }
+    //Trees are built in parallel, each one from its own seed: results do not depend on the number of slots
+    //Cells already run in parallel, so by default each forest gets processors / evaluation.threads slots. With the
+    //default evaluation.threads that is a single slot: forests only build trees in parallel when evaluation.threads
+    //is lowered, or when randomforest.slots is set
+    static RandomForest createRandomForest() {
+        RandomForest forest = new RandomForest();
+        int slots = Math.max(1, Runtime.getRuntime().availableProcessors() / Math.max(1, getEvaluationThreads()));
+
+        forest.setNumIterations(Configuration.getInt("randomforest.trees", forest.getNumIterations()));
+        forest.setNumExecutionSlots(Configuration.getInt("randomforest.slots", slots));
+        forest.setMaxDepth(Configuration.getInt("randomforest.depth", forest.getMaxDepth()));
+        forest.setBagSizePercent(Configuration.getInt("randomforest.bag", forest.getBagSizePercent()));
+        forest.setSeed(Configuration.getInt("randomforest.seed", forest.getSeed()));
+
+        return forest;
+    }
 
-                    csvWriter.append(String.format("%.3f", eval.numTruePositives(0)));
-                    csvWriter.append(",");
-                    csvWriter.append(String.format("%.3f", eval.numFalsePositives(0)));
-                    csvWriter.append(",");
-                    csvWriter.append(String.format("%.3f", eval.numTrueNegatives(0)));
-                    csvWriter.append(",");
-                    csvWriter.append(String.format("%.3f", eval.numFalseNegatives(0)));
-                    csvWriter.append(",");
-                    csvWriter.append(String.format("%.3f", eval.precision(0)));
-                    csvWriter.append(",");
-                    csvWriter.append(String.format("%.3f", eval.recall(0)));
-                    csvWriter.append(",");
-                    csvWriter.append(String.format("%.3f", eval.areaUnderROC(0)));
-                    csvWriter.append(",");
-                    csvWriter.append(String.format("%.3f", eval.kappa()));
-                    csvWriter.append("\n");
+    static Classifier getClassifier(String classifier) {
+        switch (classifier) {
+            case "Naive Bayes":
+                return new NaiveBayes();
+            case "Random Forest":
+                return createRandomForest();
+            case "IBk":
+                IBk ibk = new IBk();
+                if (!getNeighbourSearch().equals(LINEAR_SEARCH)) {
+                    ibk.setNearestNeighbourSearchAlgorithm(createNeighbourSearch(getNeighbourSearch()));
                 }
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
+                return ibk;
+            default:
+                return null;
         }
     }
 
-    private static double computeRatio(double numBuggy, double numNotBuggy, double numInstances) {
+    static double computeRatio(double numBuggy, double numNotBuggy, double numInstances) {
         if (numNotBuggy >= numBuggy) {
             return numNotBuggy / numInstances;
         } else {
@@ -252,17 +190,20 @@ public class Measurements {
     //1. number of buggy testing instances
     //2. number of buggy training instances
     //3. number of not buggy training instances
-    private static int[] computeBuggy(Instances training, Instances testing)  {
+    static int[] computeBuggy(ReleaseSetStore store, int numTraining)  {
         int[] stats = new int[]{0,0,0};
+        Instances data = store.getData();
+        int buggyIndex = data.attribute("Buggy").index();
+        int trainingSize = store.getTrainingSize(numTraining);
 
-        for (Instance instance : testing) {
-            if (instance.stringValue(testing.attribute("Buggy").index()).equals("Yes")) {
+        for (int i = trainingSize; i < store.getTrainingSize(numTraining + 1); i++) {
+            if (data.instance(i).stringValue(buggyIndex).equals("Yes")) {
                 stats[2]++;
             }
         }
 
-        for (Instance instance : training) {
-            if (instance.stringValue(training.attribute("Buggy").index()).equals("Yes")) {
+        for (int i = 0; i < trainingSize; i++) {
+            if (data.instance(i).stringValue(buggyIndex).equals("Yes")) {
                 stats[0]++;
             } else {
                 stats[1]++;
@@ -272,8 +213,14 @@ public class Measurements {
     }
 
     public static void applyWeka(Project project) {
-        int numAttributes;
         int numReleases;
+        int[] stats;
+        ReleaseSetStore store = new ReleaseSetStore();
+        List<Future<String>> rows = new ArrayList<>();
+        ForkJoinPool pool = new ForkJoinPool(getEvaluationThreads());
+        //Every selecting cell of a step reads the same selection
+        SelectionCache selections = new SelectionCache(store, CLASSIFIERS.length * SAMPLINGS.length);
+        WarmStart warmStart = Configuration.getBoolean("evaluation.warmstart", false) ? new WarmStart(store, Configuration.getBoolean("evaluation.warmstart.verify", false)) : null;
 
         //Implementing WalkForward method
         numReleases = computeValidReleases(project.getReleases());
@@ -312,34 +259,46 @@ public class Measurements {
             csvEvaluation.append("Kappa");
             csvEvaluation.append("\n");
 
-            ConverterUtils.DataSource sourceTrain = new ConverterUtils.DataSource(RELEASES_PATH + project.getName() + "_release_1.arff");
-            Instances training = sourceTrain.getDataSet();
-            numAttributes = training.numAttributes();
-
-            ConverterUtils.DataSource sourceTest = new ConverterUtils.DataSource(RELEASES_PATH + project.getName() + "_release_2.arff");
-            Instances testing = sourceTest.getDataSet();
+            //Every release set is built once from the project model, training windows are prefixes of the store
+            for (int index = 1; index <= numReleases; index++) {
+                Release release = project.getReleaseByIndex(index);
+                store.append(DatasetBuilder.build(project.getReleaseSetName(release), release.getMetrics()));
+                project.evict(release);
+            }
 
             for (Release release : project.getReleases()) {
                 if (release.getIndex() >= numReleases) {
                     continue;
                 }
 
-                if (release.getIndex() > 1) {
-                    training.addAll(new ConverterUtils.DataSource(RELEASES_PATH + project.getName() + "_release_" + release.getIndex() + ".arff").getDataSet());
-                    testing = new ConverterUtils.DataSource(RELEASES_PATH + project.getName() + "_release_" + (release.getIndex() + 1) + ".arff").getDataSet();
-                }
+                stats = computeBuggy(store, release.getIndex());
 
-                training.setClassIndex(numAttributes - 1);
-                testing.setClassIndex(numAttributes  - 1);
+                for (String classifier : CLASSIFIERS) {
+                    for (String sampling : SAMPLINGS) {
+                        for (String selection : SELECTIONS) {
+                            rows.add(pool.submit(new EvaluationCell(project.getName(), release.getIndex(), numInstances, store, selections, warmStart, stats, classifier, sampling, selection)));
+                        }
+                    }
+                }
+            }
 
-                computeClassifier(project.getName(), release.getIndex(), csvEvaluation, training, testing, "Naive Bayes");
-                computeClassifier(project.getName(), release.getIndex(), csvEvaluation, training, testing, "Random Forest");
-                computeClassifier(project.getName(), release.getIndex(), csvEvaluation, training, testing, "IBk");
+            //Rows are written in walk-forward order, whatever the completion order
+            for (Future<String> row : rows) {
+                try {
+                    csvEvaluation.append(row.get());
+                    RunMetrics.increment(RunMetrics.ROWS, 1);
+                } catch (ExecutionException e) {
+                    e.getCause().printStackTrace();
+                }
             }
 
             csvEvaluation.flush();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         } catch (Exception e) {
             e.printStackTrace();
+        } finally {
+            pool.shutdownNow();
         }
     }
 
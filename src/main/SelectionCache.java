@@ -0,0 +1,131 @@
+package main;
+
+import utility.Configuration;
+import utility.IncrementalCfs;
+import utility.ReleaseSetStore;
+import weka.core.Instances;
+import weka.core.Utils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//Feature selection of a walk forward step, computed once and shared by all the cells of the step
+//Entries are keyed by training window and filter configuration, and dropped once every cell of the step is done
+public class SelectionCache {
+    private final ReleaseSetStore store;
+    private final int uses;
+    private final Map<String, Entry> entries;
+    private final boolean incremental;
+    private IncrementalCfs[] steps;
+
+    //uses: cells of each step, the entry is dropped once all of them released it
+    public SelectionCache(ReleaseSetStore store, int uses) {
+        this.store = store;
+        this.uses = uses;
+        this.entries = new ConcurrentHashMap<>();
+        this.incremental = Configuration.getString("selection", "cfs").equals("incremental");
+    }
+
+    //Statistics of every training window, each one the previous plus the next release
+    //Folded on first use, once the store holds all the releases
+    private synchronized IncrementalCfs getStep(int numTraining) {
+        IncrementalCfs current;
+
+        if (this.steps == null) {
+            this.steps = new IncrementalCfs[this.store.numReleases()];
+            current = new IncrementalCfs(this.store.getData());
+            for (int index = 1; index <= this.store.numReleases(); index++) {
+                current.add(this.store.copyRelease(index));
+                this.steps[index - 1] = current.copy();
+            }
+        }
+        return this.steps[numTraining - 1];
+    }
+
+    private Instances[] computeSelection(int numTraining) throws Exception {
+        if (this.incremental) {
+            return getStep(numTraining).apply(this.store.copyTraining(numTraining), this.store.copyRelease(numTraining + 1));
+        }
+        return Measurements.computeSelection(Measurements.createSelectionFilter(), this.store.copyTraining(numTraining), this.store.copyRelease(numTraining + 1));
+    }
+
+    private String getKey(int numTraining) {
+        return numTraining + " " + (this.incremental ? "incremental" : Utils.joinOptions(Measurements.createSelectionFilter().getOptions()));
+    }
+
+    private Entry getEntry(String key, int numTraining) {
+        return this.entries.computeIfAbsent(key, k -> new Entry(new FutureTask<>(() -> computeSelection(numTraining)), this.uses));
+    }
+
+    private static class Entry {
+        private final FutureTask<Instances[]> selection;
+        private final AtomicInteger remaining;
+
+        private Entry(FutureTask<Instances[]> selection, int uses) {
+            this.selection = selection;
+            this.remaining = new AtomicInteger(uses);
+        }
+    }
+
+    //Filtered training and testing sets of the step, as copies the caller can modify
+    public Instances[] get(int numTraining) throws InterruptedException {
+        Entry entry = getEntry(getKey(numTraining), numTraining);
+        Instances[] selected;
+
+        //The first cell of the step runs the search, the others wait for it
+        entry.selection.run();
+        try {
+            selected = await(entry.selection);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+
+        if (selected.length == 0) {
+            return selected;
+        }
+        return new Instances[]{copy(selected[0]), copy(selected[1])};
+    }
+
+    //Called once by every cell of the step, whether it got the selection or failed before
+    public void release(int numTraining) {
+        String key = getKey(numTraining);
+        Entry entry = getEntry(key, numTraining);
+
+        if (entry.remaining.decrementAndGet() == 0) {
+            this.entries.remove(key);
+        }
+    }
+
+    //Waiting cells let the pool start other workers, so the steps of the other cells go on meanwhile
+    private static Instances[] await(FutureTask<Instances[]> selection) throws InterruptedException, ExecutionException {
+        ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+            @Override
+            public boolean block() throws InterruptedException {
+                try {
+                    selection.get();
+                } catch (ExecutionException e) {
+                    //Thrown again below
+                }
+                return true;
+            }
+
+            @Override
+            public boolean isReleasable() {
+                return selection.isDone();
+            }
+        });
+
+        return selection.get();
+    }
+
+    private static Instances copy(Instances data) {
+        Instances copy = new Instances(data, 0, data.numInstances());
+
+        copy.setClassIndex(data.classIndex());
+        return copy;
+    }
+}
@@ -0,0 +1,142 @@
+package main;
+
+import utility.ReleaseSetStore;
+import utility.RunMetrics;
+import weka.classifiers.Classifier;
+import weka.classifiers.Evaluation;
+import weka.classifiers.UpdateableClassifier;
+import weka.core.Instance;
+import weka.core.Instances;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+//Models of the no sampling, no selection cells kept across the walk forward steps: the model of a step is the
+//model of the previous one updated with the instances of the added release, instead of a rebuild on the window
+//With verify every step is also rebuilt from scratch, and the batch evaluation is kept if the two differ
+public class WarmStart {
+    private static final Logger logger = Logger.getLogger(WarmStart.class.getName());
+    private static final String MISMATCHES = "warmstart.mismatches";
+    private final ReleaseSetStore store;
+    private final boolean verify;
+    private final Map<String, Chain> chains;
+
+    public WarmStart(ReleaseSetStore store, boolean verify) {
+        this.store = store;
+        this.verify = verify;
+        this.chains = new ConcurrentHashMap<>();
+    }
+
+    //Null for the classifiers whose updated model would not match the batch one: Naive Bayes sums its estimators in
+    //another order and keeps the numeric precision of its first build
+    static Classifier getUpdateableClassifier(String classifier) {
+        switch (classifier) {
+            case "IBk":
+                //Weka's trees fail to insert into nodes of duplicate instances, they are built once per window instead
+                return Measurements.getNeighbourSearch().equals(Measurements.LINEAR_SEARCH) ? Measurements.getClassifier(classifier) : null;
+            default:
+                return null;
+        }
+    }
+
+    public boolean supports(String classifier) {
+        return getUpdateableClassifier(classifier) != null;
+    }
+
+    public Evaluation evaluate(String classifier, int numTraining) throws Exception {
+        return this.chains.computeIfAbsent(classifier, Chain::new).evaluate(numTraining);
+    }
+
+    private static boolean isSame(Evaluation warm, Evaluation batch) {
+        return Arrays.deepEquals(warm.confusionMatrix(), batch.confusionMatrix())
+                && Double.compare(warm.areaUnderROC(0), batch.areaUnderROC(0)) == 0
+                && Double.compare(warm.kappa(), batch.kappa()) == 0;
+    }
+
+    //Steps are folded in order, the evaluations of steps not asked yet are kept until their cell asks
+    private class Chain {
+        private final String classifier;
+        private final Map<Integer, Evaluation> evaluated;
+        private Classifier model;
+        private int step;
+
+        private Chain(String classifier) {
+            this.classifier = classifier;
+            this.evaluated = new HashMap<>();
+            this.step = 0;
+        }
+
+        private synchronized Evaluation evaluate(int numTraining) throws Exception {
+            Evaluation eval = this.evaluated.remove(numTraining);
+
+            if (eval == null && numTraining <= this.step) {
+                throw new IllegalStateException("Step " + numTraining + " of " + this.classifier + " already evaluated");
+            }
+
+            try {
+                while (eval == null) {
+                    advance();
+                    if (this.step == numTraining) {
+                        eval = test();
+                    } else {
+                        this.evaluated.put(this.step, test());
+                    }
+                }
+            } catch (Exception e) {
+                reset();
+                throw e;
+            }
+            return eval;
+        }
+
+        //A failed step leaves the model half updated: the next step asked starts the chain again from the first one
+        private void reset() {
+            this.model = null;
+            this.step = 0;
+            this.evaluated.clear();
+        }
+
+        private void advance() throws Exception {
+            this.step++;
+
+            if (this.step == 1) {
+                this.model = getUpdateableClassifier(this.classifier);
+                this.model.buildClassifier(WarmStart.this.store.copyTraining(1));
+                return;
+            }
+
+            for (Instance instance : WarmStart.this.store.copyRelease(this.step)) {
+                ((UpdateableClassifier) this.model).updateClassifier(instance);
+            }
+        }
+
+        private Evaluation test() throws Exception {
+            Instances training = WarmStart.this.store.copyTraining(this.step);
+            Instances testing = WarmStart.this.store.copyRelease(this.step + 1);
+            Evaluation eval = new Evaluation(training);
+            Classifier batch;
+            Evaluation batchEval;
+
+            eval.evaluateModel(this.model, testing);
+            if (!WarmStart.this.verify) {
+                return eval;
+            }
+
+            batch = Measurements.getClassifier(this.classifier);
+            batch.buildClassifier(training);
+            batchEval = new Evaluation(training);
+            batchEval.evaluateModel(batch, testing);
+
+            if (!isSame(eval, batchEval)) {
+                logger.log(Level.WARNING, "{}", "Warm started " + this.classifier + " differs from the batch model at step " + this.step);
+                RunMetrics.increment(MISMATCHES, 1);
+                return batchEval;
+            }
+            return eval;
+        }
+    }
+}
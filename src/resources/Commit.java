@@ -7,12 +7,23 @@ public class Commit {
     private final String author;
     private final LocalDate date;
     private Ticket ticket;
+    private boolean applied;
 
     public Commit(String hash, String author, LocalDate date) {
         this.hash = hash;
         this.author = author;
         this.date = date;
         this.ticket = null;
+        this.applied = false;
+    }
+
+    //True once the commit has been applied to the file metrics of its release
+    public boolean isApplied() {
+        return this.applied;
+    }
+
+    public void setApplied() {
+        this.applied = true;
     }
 
     public void setTicket(Ticket ticket) {
@@ -19,6 +19,13 @@ public class File {
         this.age = 0;
     }
 
+    public File(String name, LocalDate creationDate, long age, int bugFixes, List<String> authors) {
+        this(name, creationDate);
+        this.age = age;
+        this.bugFixes = bugFixes;
+        this.authors.addAll(authors);
+    }
+
     public void setAge(long age) {
         this.age = age;
     }
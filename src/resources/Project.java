@@ -1,25 +1,37 @@
 package resources;
 
 import org.json.JSONArray;
-import org.json.JSONException;
 import org.json.JSONObject;
 import utility.CommandLine;
-import utility.FileItem;
+import utility.BlobSizeCache;
+import utility.BugIntervalIndex;
+import utility.ChangeEntry;
+import utility.CommitSnapshot;
+import utility.Configuration;
+import utility.CsvRow;
+import utility.CsvSink;
+import utility.DatasetBuilder;
+import utility.JiraClient;
+import utility.KeyMatcher;
+import utility.PathDictionary;
+import utility.ProportionEngine;
+import utility.ReleaseMetrics;
+import utility.RepositoryReader;
+import utility.TreeEntry;
 import weka.core.Instances;
 import weka.core.converters.ArffSaver;
-import weka.core.converters.CSVLoader;
-import weka.filters.Filter;
-import weka.filters.unsupervised.attribute.Remove;
+import weka.core.converters.Saver;
 
 import java.io.*;
-import java.net.URL;
-import java.nio.charset.Charset;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -30,16 +42,33 @@ public class Project {
     private static final String WRITING = "Writing on file";
     private static final Logger logger = Logger.getLogger(Project.class.getName());
     private static final String PROPERTY = "user.dir";
+    //Snapshots read ahead per extraction thread
+    private static final int PREFETCH = 4;
     private final String name;
     private int totalTickets;
     private LocalDate startDate;
     private LocalDate endDate;
     private List<Ticket> tickets;
     private List<Release> releases;
+    private ReleaseTimeline timeline;
     private List<Commit> commits;
-    private List<File> files;
+    private Map<String, File> files;
+    private final PathDictionary paths;
+    private final boolean streaming;
+    private Path spillDirectory;
     private Release lastValidRelease;
-    private static final String CLASS = "{Yes,No}";
+    private RepositoryReader reader;
+    private BlobSizeCache sizes;
+    private final JiraClient jira;
+    private boolean snapshotLoaded;
+    private boolean refreshJira;
+    private boolean releasesAdded;
+    private int newTickets;
+    private String lastCommit;
+    private String lastUpdated;
+    private String snapshotProportion;
+    private static final String RECORD_SEPARATOR = "\u001e";
+    private static final String FIELD_SEPARATOR = "\u001f";
 
     public Project(String name) {
         this.name = name;
@@ -50,211 +79,288 @@ public class Project {
         this.lastValidRelease = null;
         this.commits = new ArrayList<>();
         this.releases = new ArrayList<>();
-        this.files = new ArrayList<>();
+        this.timeline = null;
+        this.files = new HashMap<>();
+        this.paths = new PathDictionary();
+        this.streaming = Configuration.getBoolean("streaming", false);
+        this.spillDirectory = null;
+        this.reader = null;
+        this.sizes = null;
+        this.jira = new JiraClient();
+        this.snapshotLoaded = false;
+        this.refreshJira = false;
+        this.releasesAdded = false;
+        this.newTickets = 0;
+        this.lastCommit = "";
+        this.lastUpdated = "";
+        this.snapshotProportion = "";
     }
 
-    public String getName() {
-        return this.name;
+    private Path getSnapshotPath() {
+        return Paths.get(System.getProperty(PROPERTY) + "/data/snapshots/" + this.name + ".snapshot");
     }
 
-    public List<Release> getReleases() {
-        return this.releases;
+    //After loading a snapshot, the extraction steps only process what is newer than it
+    public boolean loadSnapshot() {
+        return loadSnapshot(true);
     }
 
-    private static String readAll(Reader rd) throws IOException {
-        StringBuilder sb = new StringBuilder();
-        int cp;
-        while ((cp = rd.read()) != -1) {
-            sb.append((char) cp);
+    //Estimated versions are not recomputed: a snapshot extracted with other proportion settings is not reused,
+    //unless only the versions from Jira are needed
+    private boolean loadSnapshot(boolean sameProportion) {
+        if (!Files.exists(getSnapshotPath())) {
+            return false;
         }
-        return sb.toString();
+
+        try {
+            this.snapshotLoaded = ProjectSnapshot.load(this, getSnapshotPath());
+            if (this.snapshotLoaded && sameProportion && !this.snapshotProportion.equals(getProportionSettings())) {
+                logger.log(Level.FINE, "{}", "Proportion settings changed, extracting from scratch");
+                this.snapshotLoaded = false;
+            }
+            //Cached Jira responses are older than the snapshot
+            this.refreshJira = this.snapshotLoaded;
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Unreadable snapshot, extracting from scratch", e);
+            this.snapshotLoaded = false;
+        }
+
+        if (!this.snapshotLoaded) {
+            reset();
+            this.releases.clear();
+        }
+        this.timeline = null;
+        return this.snapshotLoaded;
     }
 
-    private static JSONObject readJsonFromUrl (String url) throws IOException, JSONException {
-        InputStream is = new URL(url).openStream();
+    //In streaming mode the metrics of a release are kept on disk, except while they are being read or written
+    public void evict(Release release) throws IOException {
+        if (!this.streaming) {
+            return;
+        }
 
-        try(BufferedReader rd = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8))) {
-            String jsonText = readAll(rd);
-            return new JSONObject(jsonText);
+        if (this.spillDirectory == null) {
+            this.spillDirectory = Files.createTempDirectory(this.name + "-metrics");
+            this.spillDirectory.toFile().deleteOnExit();
         }
+        release.getMetrics().spill(this.spillDirectory);
     }
 
-    private void csvToArff(String filename) {
-        ArffSaver saver = new ArffSaver();
-        String[] options = new String[2];
-        options[0] = "-R";
-        options[1] = "1-2";
+    private void evictBefore(int index) throws IOException {
+        for (Release release : this.releases) {
+            if (release.getIndex() < index) {
+                evict(release);
+            }
+        }
+    }
 
-        Remove remove = new Remove();
-        try {
-            remove.setOptions(options);
+    public void saveSnapshot() throws IOException {
+        ProjectSnapshot.save(this, getSnapshotPath());
+    }
 
-            CSVLoader source = new CSVLoader();
-            source.setSource(new java.io.File(filename));
-            Instances instances = source.getDataSet();
+    private void reset() {
+        this.tickets.clear();
+        this.commits.clear();
+        this.files.clear();
+        this.lastValidRelease = null;
+        this.lastCommit = "";
+        this.lastUpdated = "";
+        this.snapshotLoaded = false;
+    }
 
-            remove.setInputFormat(instances);
-            instances = Filter.useFilter(instances, remove);
+    List<Ticket> getTickets() {
+        return this.tickets;
+    }
 
-            saver.setInstances(instances);
-            saver.setFile(new java.io.File(filename.replace(".csv", ".arff")));
-            saver.writeBatch();
+    List<Commit> getCommits() {
+        return this.commits;
+    }
 
-            Path path = Paths.get(filename.replace(".csv", ".arff"));
-            Charset charset = StandardCharsets.UTF_8;
+    Map<String, File> getFiles() {
+        return this.files;
+    }
 
-            String content = new String(Files.readAllBytes(path));
-            content = content.replaceAll("[{]No,Yes[}]", CLASS);
-            content = content.replaceAll("[{]No[}]", CLASS);
-            content = content.replaceAll("[{]Yes[}]", CLASS);
-            Files.write(path, content.getBytes(charset));
+    Release getLastValidRelease() {
+        return this.lastValidRelease;
+    }
 
-        } catch (Exception e) {
+    void setLastValidRelease(Release release) {
+        this.lastValidRelease = release;
+    }
+
+    String getLastCommit() {
+        return this.lastCommit;
+    }
+
+    void setLastCommit(String lastCommit) {
+        this.lastCommit = lastCommit;
+    }
+
+    String getLastUpdated() {
+        return this.lastUpdated;
+    }
+
+    void setLastUpdated(String lastUpdated) {
+        this.lastUpdated = lastUpdated;
+    }
+
+    void setSnapshotProportion(String settings) {
+        this.snapshotProportion = settings;
+    }
+
+    private static ProportionEngine.Strategy getProportionStrategy() {
+        return ProportionEngine.Strategy.valueOf(Configuration.getString("proportion", "incremental").toUpperCase(Locale.ROOT));
+    }
+
+    //Proportion strategy with the parameters it uses, as configured for this run
+    String getProportionSettings() {
+        ProportionEngine.Strategy strategy = getProportionStrategy();
+        String settings = strategy.toString();
+
+        if (strategy == ProportionEngine.Strategy.WINDOW) {
+            settings += FIELD_SEPARATOR + Configuration.getString("proportion.window", "");
+        } else if (strategy == ProportionEngine.Strategy.COLDSTART) {
+            settings += FIELD_SEPARATOR + Configuration.getString("proportion.p", "") + FIELD_SEPARATOR + Configuration.getString("proportion.coldstart", "");
+        }
+
+        return settings;
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    PathDictionary getPaths() {
+        return this.paths;
+    }
+
+    public List<Release> getReleases() {
+        return this.releases;
+    }
+
+    private static void appendHeader(CsvRow row, CsvSink sink) throws IOException {
+        row.field("Release")
+                .field("File")
+                .field("NAuth")
+                .field("NR")
+                .field("Age")
+                .field("Size")
+                .field("NFix")
+                .field("LOC_Added")
+                .field("ChgSetSize")
+                .field("Max_ChgSetSize")
+                .field("Avg_ChgSetSize")
+                .field("Buggy")
+                .writeHeaderTo(sink);
+    }
+
+    private static void appendRow(CsvRow row, Release release, ReleaseMetrics.Cursor cursor) {
+        row.field(release.getIndex())
+                .field(cursor.getName())
+                .field(cursor.getNumOfAuthors())
+                .field(cursor.getTouchingCommits())
+                .field(cursor.getAge())
+                .field(cursor.getSize())
+                .field(cursor.getBugFixes())
+                .field(cursor.getAddedLoc())
+                .field(cursor.getChangeSetSize())
+                .field(cursor.getMaxChangeSetSize())
+                .field(cursor.getAvgChangeSetSize())
+                .field(cursor.isBuggy() ? "Yes" : "No");
+    }
+
+    private ArffSaver openArff(String filename, Instances header) throws IOException {
+        ArffSaver saver = new ArffSaver();
+
+        saver.setRetrieval(Saver.INCREMENTAL);
+        saver.setStructure(header);
+        saver.setFile(new java.io.File(filename));
+
+        return saver;
+    }
+
+    //A release set left half written is closed and removed, rather than kept truncated
+    private static void discardArff(ArffSaver saver, String filename) {
+        try {
+            saver.writeIncremental(null);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+
+        try {
+            Files.deleteIfExists(Paths.get(filename));
+        } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
-    private int prepareCSV(FileWriter csvFeatures, Release release) {
+    //Release sets (CSV and ARFF) are optional sinks, the evaluation builds its datasets in memory
+    private int prepareCSV(CsvSink csvFeatures, CsvRow row, Release release) {
         int count = 0;
+        boolean releaseSets = Configuration.getBoolean("releaseSets", true);
+        String filename = System.getProperty(PROPERTY) + "/data/releaseSets/" + this.name + "_release_" + release.getIndex();
+        Instances header = DatasetBuilder.createHeader(getReleaseSetName(release), 0);
+        ArffSaver arffRelease = null;
+        boolean written = false;
+
+        try(CsvSink csvRelease = releaseSets ? new CsvSink(Paths.get(filename + ".csv")) : null) {
+            if (csvRelease != null) {
+                appendHeader(row, csvRelease);
+                arffRelease = openArff(filename + ".arff", header);
+            }
 
-        try(FileWriter csvRelease = new FileWriter(System.getProperty(PROPERTY) + "/data/releaseSets/" + this.name + "_release_" + release.getIndex() + ".csv")) {
-            csvRelease.append("Release");
-            csvRelease.append(",");
-            csvRelease.append("File");
-            csvRelease.append(",");
-            csvRelease.append("NAuth");
-            csvRelease.append(",");
-            csvRelease.append("NR");
-            csvRelease.append(",");
-            csvRelease.append("Age");
-            csvRelease.append(",");
-            csvRelease.append("Size");
-            csvRelease.append(",");
-            csvRelease.append("NFix");
-            csvRelease.append(",");
-            csvRelease.append("LOC_Added");
-            csvRelease.append(",");
-            csvRelease.append("ChgSetSize");
-            csvRelease.append(",");
-            csvRelease.append("Max_ChgSetSize");
-            csvRelease.append(",");
-            csvRelease.append("Avg_ChgSetSize");
-            csvRelease.append(",");
-            csvRelease.append("Buggy");
-            csvRelease.append("\n");
-
-            for (FileItem item : release.getFileItems()) {
+            ReleaseMetrics.Cursor cursor = release.getMetrics().cursor();
+            while (cursor.next()) {
                 count++;
 
-                csvFeatures.append(Integer.toString(release.getIndex()));
-                csvFeatures.append(",");
-                csvFeatures.append(item.getName());
-                csvFeatures.append(",");
-                csvFeatures.append(Integer.toString(item.getNumOfAuthors()));
-                csvFeatures.append(",");
-                csvFeatures.append(Integer.toString(item.getTouchingCommits()));
-                csvFeatures.append(",");
-                csvFeatures.append(Long.toString(item.getAge()));
-                csvFeatures.append(",");
-                csvFeatures.append(Integer.toString(item.getSize()));
-                csvFeatures.append(",");
-                csvFeatures.append(Integer.toString(item.getBugFixes()));
-                csvFeatures.append(",");
-                csvFeatures.append(Integer.toString(item.getAddedLoc()));
-                csvFeatures.append(",");
-                csvFeatures.append(Integer.toString(item.getChangeSetSize()));
-                csvFeatures.append(",");
-                csvFeatures.append(Integer.toString(item.getMaxChangeSetSize()));
-                csvFeatures.append(",");
-                csvFeatures.append(Integer.toString(item.getAvgChangeSetSize()));
-                csvFeatures.append(",");
-                if (item.isBuggy()) {
-                    csvFeatures.append("Yes");
-                } else {
-                    csvFeatures.append("No");
-                }
-                csvFeatures.append("\n");
-
-                csvRelease.append(Integer.toString(release.getIndex()));
-                csvRelease.append(",");
-                csvRelease.append(item.getName());
-                csvRelease.append(",");
-                csvRelease.append(Integer.toString(item.getNumOfAuthors()));
-                csvRelease.append(",");
-                csvRelease.append(Integer.toString(item.getTouchingCommits()));
-                csvRelease.append(",");
-                csvRelease.append(Long.toString(item.getAge()));
-                csvRelease.append(",");
-                csvRelease.append(Integer.toString(item.getSize()));
-                csvRelease.append(",");
-                csvRelease.append(Integer.toString(item.getBugFixes()));
-                csvRelease.append(",");
-                csvRelease.append(Integer.toString(item.getAddedLoc()));
-                csvRelease.append(",");
-                csvRelease.append(Integer.toString(item.getChangeSetSize()));
-                csvRelease.append(",");
-                csvRelease.append(Integer.toString(item.getMaxChangeSetSize()));
-                csvRelease.append(",");
-                csvRelease.append(Integer.toString(item.getAvgChangeSetSize()));
-                csvRelease.append(",");
-                if (item.isBuggy()) {
-                    csvRelease.append("Yes");
+                //Every row is encoded once, then written to each file
+                appendRow(row, release, cursor);
+
+                if (csvRelease != null) {
+                    row.writeTo(csvFeatures, csvRelease);
+                    arffRelease.writeIncremental(DatasetBuilder.toInstance(header, cursor));
                 } else {
-                    csvRelease.append("No");
+                    row.writeTo(csvFeatures);
                 }
-                csvRelease.append("\n");
             }
 
-            csvRelease.flush();
-            csvToArff(System.getProperty(PROPERTY) + "/data/releaseSets/" + this.name + "_release_" + release.getIndex() + ".csv");
+            if (arffRelease != null) {
+                arffRelease.writeIncremental(null);
+            }
+            written = true;
         } catch (IOException e) {
             e.printStackTrace();
+        } finally {
+            if (arffRelease != null && !written) {
+                discardArff(arffRelease, filename + ".arff");
+            }
         }
 
         return count;
     }
 
+    public String getReleaseSetName(Release release) {
+        return this.name + "_release_" + release.getIndex();
+    }
+
     public int writeBugginess() {
         int count = 0;
+        CsvRow row = new CsvRow();
 
-        try(FileWriter csvFeatures = new FileWriter(System.getProperty(PROPERTY) + "/data/bugginess/" + this.name + "_Bugginess.csv")) {
+        try(CsvSink csvFeatures = new CsvSink(Paths.get(System.getProperty(PROPERTY) + "/data/bugginess/" + this.name + "_Bugginess.csv"))) {
 
             logger.log(Level.FINE, WRITING);
 
-            csvFeatures.append("Release");
-            csvFeatures.append(",");
-            csvFeatures.append("File");
-            csvFeatures.append(",");
-            csvFeatures.append("NAuth");
-            csvFeatures.append(",");
-            csvFeatures.append("NR");
-            csvFeatures.append(",");
-            csvFeatures.append("Age");
-            csvFeatures.append(",");
-            csvFeatures.append("Size");
-            csvFeatures.append(",");
-            csvFeatures.append("NFix");
-            csvFeatures.append(",");
-            csvFeatures.append("LOC_Added");
-            csvFeatures.append(",");
-            csvFeatures.append("ChgSetSize");
-            csvFeatures.append(",");
-            csvFeatures.append("Max_ChgSetSize");
-            csvFeatures.append(",");
-            csvFeatures.append("Avg_ChgSetSize");
-            csvFeatures.append(",");
-            csvFeatures.append("Buggy");
-            csvFeatures.append("\n");
+            appendHeader(row, csvFeatures);
 
             for (Release release : this.releases) {
-                if (release.getIndex() > this.lastValidRelease.getIndex() || release.getFileItems().size() == 0) {
+                if (release.getIndex() > this.lastValidRelease.getIndex() || release.getMetrics().size() == 0) {
                     continue;
                 }
 
-                count = count + prepareCSV(csvFeatures, release);
+                count = count + prepareCSV(csvFeatures, row, release);
+                evict(release);
             }
-
-            csvFeatures.flush();
         } catch (IOException e) {
             e.printStackTrace();
         }
@@ -287,198 +393,342 @@ public class Project {
         }
     }
 
+    private RepositoryReader getReader() throws IOException {
+        if (this.reader == null) {
+            this.reader = RepositoryReader.create(System.getProperty(PROPERTY) + "/../" + this.name);
+            this.sizes = new BlobSizeCache(this.reader);
+        }
+        return this.reader;
+    }
+
     private File getFileByName(String name) {
-        for (File file : this.files) {
-            if (name.equals(file.getName())) {
-                //File already exists
-                return file;
-            }
+        //Null if the file does not exist
+        return this.files.get(name);
+    }
+
+    //Built on first use once the releases are known, rebuilt whenever they change
+    private ReleaseTimeline getTimeline() {
+        if (this.timeline == null) {
+            this.timeline = new ReleaseTimeline(this.releases);
         }
-        //File does not exist
-        return null;
+        return this.timeline;
     }
 
     private Release getNextRelease(LocalDate date) {
-        for (Release release : this.releases) {
-            if (date.isBefore(release.getDate())) {
-                return release;
-            }
-        }
-        return null;
+        return getTimeline().getNext(date);
     }
 
     private Release getReleaseByName(String name) {
-        for (Release release : releases) {
-            if (release.getName().equals(name)) {
-                return release;
-            }
-        }
-        return null;
+        return getTimeline().getByName(name);
     }
 
     public Release getReleaseByIndex(int index) {
-        if (index < 1) {
-            index = 1;
-        }
-        for (Release release : releases) {
-            if (release.getIndex() == index) {
-                return release;
-            }
-        }
-        return null;
+        return getTimeline().getByIndex(index);
     }
 
-    private void findChangedFiles(Release myRelease, Commit commit) throws IOException {
-        CommandLine command = new CommandLine();
-        String output;
-        FileItem myFileItem;
+    private void findChangedFiles(Release myRelease, Commit commit, CommitSnapshot snapshot, BugIntervalIndex intervals) {
+        ReleaseMetrics metrics = myRelease.getMetrics();
+        BitSet affected = new BitSet();
         File myFile;
-        String[] lines;
-        String[] items;
-
-        command.setCommand("./getChanges.sh " + this.name  + " " + commit.getHash(), System.getProperty(PROPERTY) + "/script");
-        output = command.executeCommand();
-
-        lines = output.split("END", 0);
+        int fileId;
+        int row;
+        int to;
+        List<ChangeEntry> changes = snapshot.getChanges();
+
+        //Later releases have no files yet, so they are not labelled by this commit
+        for (Release av : commit.getTicket().getAffectedVersions()) {
+            if (av.getIndex() <= myRelease.getIndex()) {
+                affected.set(av.getIndex());
+            }
+        }
 
         //Modified files in the considered commit
-        for (String line : lines) {
-            items = line.split("\t", 0);
-
-            if (items.length != 3 || (myFile = getFileByName(items[2])) == null || (myFileItem = myRelease.getFileItemByName(items[2])) == null) {
+        for (ChangeEntry change : changes) {
+            fileId = this.paths.find(change.getPath());
+            if ((myFile = getFileByName(change.getPath())) == null || (row = metrics.find(fileId)) < 0) {
                 continue;
             }
 
             myFile.incrBugFixes();
 
-            myFileItem.incrTouchingCommits();
-            myFileItem.setBugFixes(myFile.getBugFixes());
-            myFileItem.addChangeSetSize(lines.length - 1);
-            myFileItem.incrAddedLoc(Integer.parseInt(items[0]));
-
-            for (Release av : commit.getTicket().getAffectedVersions()) {
-                myFileItem = av.getFileItemByName(items[2]);
+            metrics.incrTouchingCommits(row);
+            metrics.setBugFixes(row, myFile.getBugFixes());
+            metrics.addChangeSetSize(row, changes.size() - 1);
+            metrics.incrAddedLoc(row, change.getAddedLoc());
 
-                if (myFileItem == null) {
-                    continue;
-                }
-
-                myFileItem.setBuggy();
+            //Affected versions as runs of consecutive releases
+            for (int from = affected.nextSetBit(0); from >= 0; from = affected.nextSetBit(to)) {
+                to = affected.nextClearBit(from);
+                intervals.add(fileId, from, to);
             }
         }
     }
 
-    private void findExistingFiles(Release myRelease, Commit commit) throws IOException {
-        CommandLine command = new CommandLine();
-        String output;
-        FileItem myFileItem;
+    private void findExistingFiles(Release myRelease, Commit commit, CommitSnapshot snapshot) {
+        ReleaseMetrics metrics = myRelease.getMetrics();
         File myFile;
-        String[] lines;
-
-        //Listing all the files existing in the considered commit
-        command.setCommand("./getFiles.sh " + this.name  + " " + commit.getHash(), System.getProperty(PROPERTY) + "/script");
-        output = command.executeCommand();
-
-        lines = output.split("END", 0);
+        String filename;
+        int row;
 
-        //Existing files in the considered commit
-        for (String filename : lines) {
+        //Existing files in the considered commit, with their size at that commit
+        for (TreeEntry entry : snapshot.getEntries()) {
+            filename = entry.getPath();
             myFile = getFileByName(filename);
             if (myFile == null) {
                 myFile = new File(filename, commit.getDate());
-                this.files.add(myFile);
+                this.files.put(filename, myFile);
             }
 
             myFile.setAge(WEEKS.between(myFile.getCreationDate(), commit.getDate()));
             myFile.addAuthor(commit.getAuthor());
 
-            //Searching for the fileItem, if it exists
-            myFileItem = myRelease.getFileItemByName(filename);
-            if (myFileItem == null) {
-                myFileItem = new FileItem(filename);
-                myRelease.addFileItem(myFileItem);
-            }
+            //Row of the file in the release, appended if missing
+            row = metrics.add(this.paths.getId(filename));
+
+            metrics.setAge(row, myFile.getAge());
+            metrics.setNumOfAuthors(row, myFile.getAuthors().size());
+            metrics.setSize(row, snapshot.getLineCount(entry));
+        }
+    }
 
-            myFileItem.setAge(myFile.getAge());
-            myFileItem.setNumOfAuthors(myFile.getAuthors().size());
+    private FutureTask<CommitSnapshot> readSnapshot(Commit commit, ExecutorService executor) throws IOException {
+        RepositoryReader myReader = getReader();
+        BlobSizeCache mySizes = this.sizes;
+        FutureTask<CommitSnapshot> task = new FutureTask<>(() -> CommitSnapshot.read(myReader, mySizes, commit.getHash()));
 
-            command.setCommand("cat " + filename + " | wc -l", System.getProperty(PROPERTY) + "../" + this.name);
-            output = command.executeCommand();
+        //Without executor the task is run by the merge step
+        if (executor != null) {
+            executor.execute(task);
+        }
+        return task;
+    }
 
-            myFileItem.setSize(Integer.parseInt(output));
+    //Keeps at most size snapshots read ahead of the merge step, whatever the size of the releases
+    private void fillWindow(Deque<FutureTask<CommitSnapshot>> window, Iterator<Commit> ahead, int size, ExecutorService executor) throws IOException {
+        while (window.size() < size && ahead.hasNext()) {
+            window.addLast(readSnapshot(ahead.next(), executor));
         }
     }
 
+    private static CommitSnapshot awaitSnapshot(FutureTask<CommitSnapshot> task) throws IOException {
+        task.run();
+
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+    }
+
+    //New commits can only be merged on top of the applied ones if they are strictly newer: a full run could
+    //interleave commits of the same day differently, and the order dependent metrics would not match it
+    private boolean isOutOfOrder() {
+        LocalDate lastApplied = null;
+
+        for (Commit commit : this.commits) {
+            if (commit.isApplied() && (lastApplied == null || commit.getDate().isAfter(lastApplied))) {
+                lastApplied = commit.getDate();
+            }
+        }
+
+        for (Commit commit : this.commits) {
+            if (!commit.isApplied() && lastApplied != null && !commit.getDate().isAfter(lastApplied)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
     public void extractFiles() throws IOException {
+        Map<Release, List<Commit>> partitions = new LinkedHashMap<>();
+        List<Commit> ordered = new ArrayList<>();
+        Deque<FutureTask<CommitSnapshot>> window = new ArrayDeque<>();
+        Iterator<Commit> ahead;
         Release myRelease;
+        CommitSnapshot snapshot;
+        int threads = Math.max(1, Configuration.getInt("extraction.threads", Runtime.getRuntime().availableProcessors()));
+        ExecutorService executor = threads > 1 ? Executors.newFixedThreadPool(threads) : null;
+        int windowSize = threads * PREFETCH;
+        BugIntervalIndex intervals = new BugIntervalIndex(this.releases.size());
+        ReleaseMetrics[] metrics;
+        boolean rebuild = isOutOfOrder();
         int index = 0;
+        int total = 0;
 
         logger.log(Level.FINE, "EXTRACTING FILES");
 
-        //Commits ordered by increasing date
+        //New commits older than the applied history cannot be merged on top of it: files are rebuilt from scratch
+        if (rebuild) {
+            logger.log(Level.FINE, "New commits precede the snapshot, rebuilding file metrics");
+            this.files.clear();
+            for (Release release : this.releases) {
+                release.clearMetrics();
+            }
+        }
+
+        //Carried over items are rebuilt below, after the new commits
+        for (Release release : this.releases) {
+            if (release.isCarriedOver()) {
+                release.clearMetrics();
+                release.setCarriedOver(false);
+            }
+        }
+
+        //Commits ordered by increasing date, partitioned by corresponding release
+        //Release ordered by increasing date. Commits applied by a previous run are skipped
         for (Commit commit : this.commits) {
-            index++;
+            if (commit.isApplied() && !rebuild) {
+                continue;
+            }
+            myRelease = getNextRelease(commit.getDate());
+            if (myRelease != null) {
+                partitions.computeIfAbsent(myRelease, r -> new ArrayList<>()).add(commit);
+                total++;
+            }
+        }
+        for (List<Commit> partition : partitions.values()) {
+            ordered.addAll(partition);
+        }
+        ahead = ordered.iterator();
 
-            if (index == 1) {
-                findExistingFiles(this.releases.get(0), commit);
+        try {
+            //The first commit always populates the first release
+            if (!this.commits.isEmpty() && this.releases.get(0).getMetrics().size() == 0) {
+                findExistingFiles(this.releases.get(0), this.commits.get(0), awaitSnapshot(readSnapshot(this.commits.get(0), executor)));
             }
 
-            logger.log(Level.FINE, "{}", index + "/" + this.commits.size());
+            //Snapshots are read ahead of the merge through a sliding window, and merged in date order
+            for (Map.Entry<Release, List<Commit>> partition : partitions.entrySet()) {
+                myRelease = partition.getKey();
 
-            //Searching for corresponding release
-            //Release ordered by increasing date
-            myRelease = getNextRelease(commit.getDate());
-            if (myRelease == null) {
-                continue;
+                //No later commit changes the metrics of the previous releases, only their labels
+                evictBefore(myRelease.getIndex());
+
+                for (Commit commit : partition.getValue()) {
+                    index++;
+
+                    logger.log(Level.FINE, "{}", index + "/" + total);
+
+                    fillWindow(window, ahead, windowSize, executor);
+                    snapshot = awaitSnapshot(window.pollFirst());
+                    findExistingFiles(myRelease, commit, snapshot);
+                    findChangedFiles(myRelease, commit, snapshot, intervals);
+                    commit.setApplied();
+                }
             }
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+        }
 
-            findExistingFiles(myRelease, commit);
-            findChangedFiles(myRelease, commit);
+        if (this.reader != null) {
+            logger.log(Level.FINE, "{}", this.sizes.size() + " distinct blobs counted");
+            this.reader.close();
+            this.reader = null;
+            this.sizes = null;
+        }
+
+        //Labels of every release in one sweep, before the carry over
+        if (!intervals.isEmpty()) {
+            metrics = new ReleaseMetrics[this.releases.size()];
+            for (Release release : this.releases) {
+                metrics[release.getIndex() - 1] = release.getMetrics();
+            }
+            intervals.apply(metrics);
         }
 
+        //The first release has no previous one to take the items from
         for (Release release : this.releases) {
-            if (release.getFileItems().size() == 0) {
-                for (FileItem fileItem : getReleaseByIndex(release.getIndex() - 1).getFileItems()) {
-                    release.addFileItem(fileItem);
-                }
+            if (release.getIndex() > 1 && release.getMetrics().size() == 0) {
+                //Columns are shared until one of the two releases is written
+                release.getMetrics().shareFrom(getReleaseByIndex(release.getIndex() - 1).getMetrics());
+                release.setCarriedOver(true);
             }
         }
+
+        evictBefore(Integer.MAX_VALUE);
+    }
+
+    private void addLoggedCommit(StringBuilder record, KeyMatcher matcher, Map<String, Ticket> ticketsByKey, Set<String> linked, Map<Ticket, List<Commit>> found) {
+        String[] info = record.toString().split(FIELD_SEPARATOR, 4);
+        Commit newCommit;
+
+        if (info.length != 4) {
+            return;
+        }
+
+        //A commit mentioning several tickets is linked to each of them
+        for (String key : matcher.find(info[3])) {
+            //Already linked by a previous run
+            if (linked.contains(info[0] + key)) {
+                continue;
+            }
+            newCommit = new Commit(info[0], info[2], LocalDate.parse(info[1].substring(0, 10)));
+            found.computeIfAbsent(ticketsByKey.get(key), t -> new ArrayList<>()).add(newCommit);
+        }
     }
 
     public void extractCommits() throws IOException {
         CommandLine command = new CommandLine();
-        String output;
-        String[] lines;
-        String[] info;
-        String newHash;
-        String newDate;
-        String newAuthor;
-        Commit newCommit;
+        Map<String, Ticket> ticketsByKey = new HashMap<>();
+        Map<Ticket, List<Commit>> found = new HashMap<>();
+        StringBuilder record = new StringBuilder();
+        KeyMatcher matcher;
+        List<Commit> ticketCommits;
+        Set<String> linked = new HashSet<>();
+        String head;
         int index = 0;
 
         logger.log(Level.FINE, "EXTRACTING COMMITS");
 
-        for (Ticket ticket : this.tickets) {
-            index++;
+        command.setCommand("git rev-parse HEAD", System.getProperty(PROPERTY) + "/../" + this.name);
+        head = command.executeCommand().trim();
 
-            logger.log(Level.FINE, "{}", index + "/" + this.commits.size());
+        if (this.snapshotLoaded && !this.releasesAdded && this.newTickets == 0 && head.equals(this.lastCommit)) {
+            logger.log(Level.FINE, "No new commits nor tickets since the snapshot");
+            return;
+        }
 
-            command.setCommand("git log --date=iso-strict --grep=" + ticket.getKey() + " -F --until=" + this.releases.get(this.releases.size() - 1).getDate().toString() + " --pretty=format:'%H'BREAK'%cd'BREAK'%an'END | sort", System.getProperty(PROPERTY) + "../" + this.name);
-            output = command.executeCommand();
+        for (Ticket ticket : this.tickets) {
+            ticketsByKey.put(ticket.getKey(), ticket);
+        }
+        for (Commit commit : this.commits) {
+            linked.add(commit.getHash() + commit.getTicket().getKey());
+        }
+        matcher = new KeyMatcher(ticketsByKey.keySet());
+
+        //Single pass over the history: every record starts with a separator line and holds hash, date, author and message
+        command.setCommand("git log --date=iso-strict --until=" + this.releases.get(this.releases.size() - 1).getDate().toString() + " --pretty=format:'%x1e%H%x1f%cd%x1f%an%x1f%B'", System.getProperty(PROPERTY) + "/../" + this.name);
+        command.executeCommand(line -> {
+            if (line.startsWith(RECORD_SEPARATOR)) {
+                addLoggedCommit(record, matcher, ticketsByKey, linked, found);
+                record.setLength(0);
+                record.append(line, 1, line.length());
+            } else {
+                record.append("\n").append(line);
+            }
+        });
+        addLoggedCommit(record, matcher, ticketsByKey, linked, found);
+        this.lastCommit = head;
 
-            lines = output.split("END", 0);
-            for (String line : lines) {
-                info = line.split("BREAK", 0);
+        for (Ticket ticket : this.tickets) {
+            index++;
 
-                if (info.length == 3) {
-                    newHash = info[0];
-                    newDate = info[1].substring(0, 10);
-                    newAuthor = info[2];
-                } else {
-                    continue;
-                }
+            logger.log(Level.FINE, "{}", index + "/" + this.tickets.size());
+
+            ticketCommits = found.get(ticket);
+            if (ticketCommits == null) {
+                continue;
+            }
 
-                newCommit = new Commit(newHash, newAuthor, LocalDate.parse(newDate));
+            //Same order as the former per-ticket "git log | sort"
+            ticketCommits.sort(Comparator.comparing(Commit::getHash));
+            for (Commit newCommit : ticketCommits) {
                 ticket.addCommit(newCommit);
                 this.commits.add(newCommit);
                 newCommit.setTicket(ticket);
@@ -486,6 +736,28 @@ public class Project {
         }
 
         logger.log(Level.FINE, "Sorting commits by date");
+        sortCommits();
+    }
+
+    //Same order as a full extraction, also for the commits of a snapshot: tickets in order, the commits of each one
+    //by hash, then by date. Commits of the same day keep that order, so a rebuild replays them as a full run would
+    private void sortCommits() {
+        Set<Commit> known = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<Commit> ticketCommits;
+
+        known.addAll(this.commits);
+        this.commits.clear();
+
+        for (Ticket ticket : this.tickets) {
+            ticketCommits = new ArrayList<>(ticket.getCommits());
+            ticketCommits.sort(Comparator.comparing(Commit::getHash));
+            for (Commit commit : ticketCommits) {
+                if (known.remove(commit)) {
+                    this.commits.add(commit);
+                }
+            }
+        }
+
         //@Override
         this.commits.sort(Comparator.comparing(Commit::getDate));
     }
@@ -530,7 +802,7 @@ public class Project {
         }
     }
 
-    private void computeVersions(Ticket ticket, JSONObject field) {
+    private boolean computeVersions(Ticket ticket, JSONObject field) {
         Release newFixedVersion;
         Release newAffectedVersion;
 
@@ -549,7 +821,7 @@ public class Project {
         }
 
         if (!isValidTicket(ticket, field)) {
-            return;
+            return false;
         }
 
         this.tickets.add(ticket);
@@ -570,70 +842,162 @@ public class Project {
         }
 
         computeIV(ticket);
+
+        return true;
     }
 
-    private void computeProportion() {
-        int newInjectedIndex;
-        int avItems;
-        double incrP;
-        avItems = 0;
-        incrP = 0.0;
+    //Average P of the tickets with a known injected version
+    private double getAverageP() {
+        double sum = 0.0;
+        int count = 0;
+
         for (Ticket ticket : this.tickets) {
-            if (ticket.getOpeningVersion().getIndex() == 1) {
+            if (ticket.getOpeningVersion().getIndex() > 1 && !ticket.isEstimated() && ticket.getAffectedVersions().size() > 0) {
+                sum = sum + ticket.getP();
+                count++;
+            }
+        }
+
+        return count == 0 ? 0.0 : sum / count;
+    }
+
+    //Cold start P: a fixed value, or the median P of other projects extracted before (from their snapshots)
+    private double getColdStartP() {
+        List<Double> values = new ArrayList<>();
+        double[] averages;
+        Project other;
+
+        if (!Configuration.getString("proportion.p", "").isEmpty()) {
+            return Configuration.getDouble("proportion.p", 0.0);
+        }
+
+        for (String otherName : Configuration.getString("proportion.coldstart", "").split(",")) {
+            if (otherName.trim().isEmpty() || otherName.trim().equals(this.name)) {
                 continue;
             }
-            //Ticket with known affected versions and injected version
-            if (ticket.getAffectedVersions().size() > 0) {
-                //P computation
-                incrP = ((incrP * avItems) + ticket.getP()) / (avItems + 1);
-                avItems++;
+
+            other = new Project(otherName.trim());
+            if (other.loadSnapshot(false)) {
+                values.add(other.getAverageP());
             } else {
-                if (incrP == 0.0 || avItems == 0) {
-                    //Simple method
-                    ticket.setInjectedVersion(getReleaseByIndex(ticket.getOpeningVersion().getIndex() - 1));
-                } else {
-                    //Incremental proportion method
-                    newInjectedIndex = (int) (ticket.getFixedVersion().getIndex() - (ticket.getFixedVersion().getIndex() - ticket.getOpeningVersion().getIndex()) * incrP);
-                    ticket.setInjectedVersion(getReleaseByIndex(newInjectedIndex));
-                }
+                logger.log(Level.WARNING, "{}", "No snapshot of " + otherName.trim() + " for the cold start proportion");
+            }
+        }
 
-                for (int m = ticket.getInjectedVersion().getIndex(); m < ticket.getFixedVersion().getIndex(); m++) {
-                    ticket.addAffectedVersion(getReleaseByIndex(m));
-                }
+        averages = new double[values.size()];
+        for (int i = 0; i < averages.length; i++) {
+            averages[i] = values.get(i);
+        }
+
+        return ProportionEngine.median(averages);
+    }
+
+    private ProportionEngine createProportionEngine() {
+        ProportionEngine.Strategy strategy = getProportionStrategy();
+        double coldStartP = strategy == ProportionEngine.Strategy.COLDSTART ? getColdStartP() : 0.0;
+        int window = Configuration.getInt("proportion.window", Math.max(1, this.tickets.size() / 100));
+
+        logger.log(Level.FINE, "{}", "Proportion " + strategy + (strategy == ProportionEngine.Strategy.COLDSTART ? ", P = " + coldStartP : ""));
+
+        return new ProportionEngine(strategy, coldStartP, window);
+    }
+
+    private void computeProportion() {
+        int numTickets = this.tickets.size();
+        int[] ov = new int[numTickets];
+        int[] fv = new int[numTickets];
+        int[] iv = new int[numTickets];
+        int[] estimated;
+        Ticket ticket;
+
+        for (int i = 0; i < numTickets; i++) {
+            ticket = this.tickets.get(i);
+            ov[i] = ticket.getOpeningVersion().getIndex();
+            fv[i] = ticket.getFixedVersion().getIndex();
+
+            //Tickets estimated by a previous run neither contribute to P nor need a new estimate
+            if (ov[i] == 1 || ticket.isEstimated()) {
+                iv[i] = ProportionEngine.SKIP;
+            } else if (ticket.getAffectedVersions().size() > 0) {
+                //Ticket with known affected versions and injected version
+                iv[i] = ticket.getInjectedVersion().getIndex();
+            } else {
+                iv[i] = ProportionEngine.UNKNOWN;
+            }
+        }
+
+        estimated = createProportionEngine().estimate(ov, fv, iv);
+
+        for (int i = 0; i < numTickets; i++) {
+            if (iv[i] != ProportionEngine.UNKNOWN) {
+                continue;
             }
+
+            ticket = this.tickets.get(i);
+            ticket.setInjectedVersion(getReleaseByIndex(estimated[i]));
+            for (int m = estimated[i]; m < fv[i]; m++) {
+                ticket.addAffectedVersion(getReleaseByIndex(m));
+            }
+            ticket.setEstimated();
         }
     }
 
     public void extractTickets() throws IOException {
         Ticket newTicket;
-        int j;
+        JSONArray issues;
+        Set<String> known = new HashSet<>();
+        String updated;
         int i = 0;
 
         logger.log(Level.FINE, "EXTRACTING TICKETS");
-        do {
-            j = i + 1000;
-            String url = "https://issues.apache.org/jira/rest/api/2/search?jql=project=%22" + this.name;
-            url += "%22AND%22issueType%22=%22Bug%22";
-            url += "AND(%22status%22=%22resolved%22OR%22status%22=%22closed%22)";
-            url += "AND%22resolution%22=%22fixed%22&fields=key,resolutiondate,versions,fixVersions,created&startAt=" + i + "&maxResults=" + j;
 
-            JSONObject json = readJsonFromUrl(url);
-            JSONArray issues = json.getJSONArray("issues");
+        for (Ticket ticket : this.tickets) {
+            known.add(ticket.getKey());
+        }
+
+        String jql = "project=%22" + this.name;
+        jql += "%22AND%22issueType%22=%22Bug%22";
+        jql += "AND(%22status%22=%22resolved%22OR%22status%22=%22closed%22)";
+        jql += "AND%22resolution%22=%22fixed%22";
+
+        //Same releases as the snapshot: only tickets updated since then (with one day of margin) can be new
+        if (this.snapshotLoaded && !this.releasesAdded && !this.lastUpdated.isEmpty()) {
+            jql += "AND%22updated%22%3E=%22" + LocalDate.parse(this.lastUpdated.substring(0, 10)).minusDays(1) + "%22";
+        }
 
-            this.totalTickets = json.getInt("total");
+        this.newTickets = 0;
 
-            for (; i < this.totalTickets && i < j; i++) {
+        //Pages are fetched concurrently but processed in order
+        for (JSONObject page : this.jira.search(jql, "key,resolutiondate,versions,fixVersions,created,updated", 1000, this.refreshJira)) {
+            issues = page.getJSONArray("issues");
 
-                logger.log(Level.FINE, "{}", i+1 + "/" + this.totalTickets);
+            this.totalTickets = page.getInt("total");
 
-                String key = issues.getJSONObject(i%1000).get("key").toString();
-                JSONObject field = issues.getJSONObject(i%1000).getJSONObject("fields");
+            for (int k = 0; k < issues.length(); k++) {
+                i++;
+
+                logger.log(Level.FINE, "{}", i + "/" + this.totalTickets);
+
+                String key = issues.getJSONObject(k).get("key").toString();
+                JSONObject field = issues.getJSONObject(k).getJSONObject("fields");
+
+                updated = field.optString("updated", "");
+                if (updated.compareTo(this.lastUpdated) > 0) {
+                    this.lastUpdated = updated;
+                }
+
+                //Tickets of the snapshot keep their versions
+                if (known.contains(key)) {
+                    continue;
+                }
 
                 newTicket = new Ticket(key);
 
-                computeVersions(newTicket, field);
+                if (computeVersions(newTicket, field)) {
+                    this.newTickets++;
+                }
             }
-        } while (i < this.totalTickets);
+        }
 
         logger.log(Level.FINE, "Sorting tickets by opening date");
         //@Override
@@ -643,6 +1007,26 @@ public class Project {
         computeProportion();
     }
 
+    //Snapshot releases must be the oldest ones, unchanged: they are kept, with their file items, and the new ones appended
+    private boolean mergeReleases(List<Release> known) {
+        Release release;
+
+        if (known.size() > this.releases.size()) {
+            return false;
+        }
+
+        for (int i = 0; i < known.size(); i++) {
+            release = this.releases.get(i);
+            if (release.getId() != known.get(i).getId() || !release.getDate().equals(known.get(i).getDate())) {
+                return false;
+            }
+            this.releases.set(i, known.get(i));
+        }
+
+        this.releasesAdded = this.releases.size() > known.size();
+        return true;
+    }
+
     public void extractReleases() throws IOException {
         LocalDate date;
         LocalDate lastValidDate;
@@ -652,10 +1036,13 @@ public class Project {
 
         logger.log(Level.FINE, "EXTRACTING RELEASES");
 
-        String url = "https://issues.apache.org/jira/rest/api/2/project/" + this.name.toUpperCase();
-        JSONObject json = readJsonFromUrl(url);
+        List<Release> known = this.releases;
+        JSONObject json = this.jira.get("/rest/api/2/project/" + this.name.toUpperCase(), this.refreshJira);
         JSONArray versions = json.getJSONArray("versions");
 
+        this.releases = new ArrayList<>();
+        this.timeline = null;
+
         //Adding all the releases with complete information
         for (int i = 0; i < versions.length(); i++ ) {
             logger.log(Level.FINE, "{}", i+1 + "/" + versions.length());
@@ -667,7 +1054,7 @@ public class Project {
                 if (versions.getJSONObject(i).has("id")) {
                     id = Integer.parseInt(versions.getJSONObject(i).get("id").toString());
                 }
-                this.releases.add(new Release(id, versionName, date));
+                this.releases.add(new Release(id, versionName, date, this.paths));
             }
         }
 
@@ -675,6 +1062,11 @@ public class Project {
         //@Override
         this.releases.sort(Comparator.comparing(Release::getDate));
 
+        if (!known.isEmpty() && !mergeReleases(known)) {
+            logger.log(Level.WARNING, "Releases differ from the snapshot, extracting from scratch");
+            reset();
+        }
+
         this.startDate = this.releases.get(0).getDate();
         this.endDate = this.releases.get(this.releases.size() - 1).getDate();
 
@@ -693,6 +1085,8 @@ public class Project {
             index++;
         }
 
+        this.timeline = new ReleaseTimeline(this.releases);
+
         writeReleases();
     }
 }
@@ -0,0 +1,258 @@
+package resources;
+
+import utility.ReleaseMetrics;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+//Compact binary image of the extracted project model.
+//Releases are referenced by index, tickets by key, 0 and "" stand for missing values
+class ProjectSnapshot {
+    private static final int MAGIC = 0x44324953;
+    private static final int VERSION = 2;
+    private static final int METRICS = 8;
+
+    private ProjectSnapshot() {
+    }
+
+    private static int indexOf(Release release) {
+        return release == null ? 0 : release.getIndex();
+    }
+
+    private static Release byIndex(List<Release> releases, int index) {
+        return index == 0 ? null : releases.get(index - 1);
+    }
+
+    static void save(Project project, Path path) throws IOException {
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+
+        Files.createDirectories(path.getParent());
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(tmp))))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(project.getName());
+            out.writeUTF(project.getLastCommit());
+            out.writeUTF(project.getLastUpdated());
+            out.writeUTF(project.getProportionSettings());
+
+            writeFiles(out, project.getFiles().values());
+            writeReleases(out, project);
+            writeTickets(out, project.getTickets());
+            writeCommits(out, project.getCommits());
+        }
+
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeReleases(DataOutputStream out, Project project) throws IOException {
+        out.writeInt(project.getReleases().size());
+        out.writeInt(indexOf(project.getLastValidRelease()));
+
+        for (Release release : project.getReleases()) {
+            out.writeInt(release.getId());
+            out.writeUTF(release.getName());
+            out.writeLong(release.getDate().toEpochDay());
+            out.writeBoolean(release.isValid());
+            out.writeBoolean(release.isCarriedOver());
+
+            //Carried over items are rebuilt at the end of every extraction
+            if (release.isCarriedOver()) {
+                out.writeInt(0);
+                continue;
+            }
+
+            out.writeInt(release.getMetrics().size());
+            ReleaseMetrics.Cursor cursor = release.getMetrics().cursor();
+            while (cursor.next()) {
+                out.writeUTF(cursor.getName());
+                out.writeBoolean(cursor.isBuggy());
+                out.writeLong(cursor.getAge());
+                for (int metric : cursor.getMetrics()) {
+                    out.writeInt(metric);
+                }
+            }
+            project.evict(release);
+        }
+    }
+
+    private static void writeTickets(DataOutputStream out, List<Ticket> tickets) throws IOException {
+        out.writeInt(tickets.size());
+
+        for (Ticket ticket : tickets) {
+            out.writeUTF(ticket.getKey());
+            out.writeInt(indexOf(ticket.getInjectedVersion()));
+            out.writeInt(indexOf(ticket.getOpeningVersion()));
+            out.writeInt(indexOf(ticket.getFixedVersion()));
+            out.writeDouble(ticket.getP());
+            out.writeBoolean(ticket.isEstimated());
+
+            out.writeInt(ticket.getAffectedVersions().size());
+            for (Release av : ticket.getAffectedVersions()) {
+                out.writeInt(av.getIndex());
+            }
+        }
+    }
+
+    private static void writeCommits(DataOutputStream out, List<Commit> commits) throws IOException {
+        out.writeInt(commits.size());
+
+        for (Commit commit : commits) {
+            out.writeUTF(commit.getHash());
+            out.writeUTF(commit.getAuthor());
+            out.writeLong(commit.getDate().toEpochDay());
+            out.writeUTF(commit.getTicket().getKey());
+            out.writeBoolean(commit.isApplied());
+        }
+    }
+
+    private static void writeFiles(DataOutputStream out, Collection<File> files) throws IOException {
+        out.writeInt(files.size());
+
+        for (File file : files) {
+            out.writeUTF(file.getName());
+            out.writeLong(file.getCreationDate().toEpochDay());
+            out.writeLong(file.getAge());
+            out.writeInt(file.getBugFixes());
+
+            out.writeInt(file.getAuthors().size());
+            for (String author : file.getAuthors()) {
+                out.writeUTF(author);
+            }
+        }
+    }
+
+    //Returns false if the file is not a snapshot of this project
+    static boolean load(Project project, Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(Files.newInputStream(path))))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || !in.readUTF().equals(project.getName())) {
+                return false;
+            }
+
+            project.setLastCommit(in.readUTF());
+            project.setLastUpdated(in.readUTF());
+            project.setSnapshotProportion(in.readUTF());
+
+            readFiles(in, project);
+            readReleases(in, project);
+            Map<String, Ticket> tickets = readTickets(in, project);
+            readCommits(in, project, tickets);
+        }
+
+        return true;
+    }
+
+    private static void readReleases(DataInputStream in, Project project) throws IOException {
+        int numReleases = in.readInt();
+        int lastValid = in.readInt();
+        int[] metrics = new int[METRICS];
+        Release release;
+        String name;
+        boolean buggy;
+        long age;
+
+        for (int i = 1; i <= numReleases; i++) {
+            release = new Release(in.readInt(), in.readUTF(), LocalDate.ofEpochDay(in.readLong()), project.getPaths());
+            release.setIndex(i);
+            if (in.readBoolean()) {
+                release.setValid();
+            } else {
+                release.setInvalid();
+            }
+            release.setCarriedOver(in.readBoolean());
+
+            for (int k = in.readInt(); k > 0; k--) {
+                name = in.readUTF();
+                buggy = in.readBoolean();
+                age = in.readLong();
+                for (int m = 0; m < METRICS; m++) {
+                    metrics[m] = in.readInt();
+                }
+                release.getMetrics().set(release.getMetrics().add(project.getPaths().getId(name)), buggy, metrics, age);
+            }
+
+            project.getReleases().add(release);
+        }
+
+        project.setLastValidRelease(byIndex(project.getReleases(), lastValid));
+    }
+
+    private static Map<String, Ticket> readTickets(DataInputStream in, Project project) throws IOException {
+        Map<String, Ticket> tickets = new HashMap<>();
+        List<Release> releases = project.getReleases();
+        Ticket ticket;
+
+        for (int i = in.readInt(); i > 0; i--) {
+            ticket = new Ticket(in.readUTF());
+            ticket.setInjectedVersion(byIndex(releases, in.readInt()));
+            ticket.setOpeningVersion(byIndex(releases, in.readInt()));
+            ticket.setFixedVersion(byIndex(releases, in.readInt()));
+            ticket.setP(in.readDouble());
+            if (in.readBoolean()) {
+                ticket.setEstimated();
+            }
+
+            for (int k = in.readInt(); k > 0; k--) {
+                ticket.addAffectedVersion(byIndex(releases, in.readInt()));
+            }
+
+            project.getTickets().add(ticket);
+            tickets.put(ticket.getKey(), ticket);
+        }
+
+        return tickets;
+    }
+
+    private static void readCommits(DataInputStream in, Project project, Map<String, Ticket> tickets) throws IOException {
+        Commit commit;
+        Ticket ticket;
+
+        for (int i = in.readInt(); i > 0; i--) {
+            commit = new Commit(in.readUTF(), in.readUTF(), LocalDate.ofEpochDay(in.readLong()));
+            ticket = tickets.get(in.readUTF());
+            if (in.readBoolean()) {
+                commit.setApplied();
+            }
+
+            commit.setTicket(ticket);
+            ticket.addCommit(commit);
+            project.getCommits().add(commit);
+        }
+    }
+
+    private static void readFiles(DataInputStream in, Project project) throws IOException {
+        List<String> authors = new ArrayList<>();
+        String name;
+        LocalDate creationDate;
+        long age;
+        int bugFixes;
+
+        for (int i = in.readInt(); i > 0; i--) {
+            name = in.readUTF();
+            creationDate = LocalDate.ofEpochDay(in.readLong());
+            age = in.readLong();
+            bugFixes = in.readInt();
+
+            authors.clear();
+            for (int k = in.readInt(); k > 0; k--) {
+                authors.add(in.readUTF());
+            }
+
+            project.getFiles().put(name, new File(name, creationDate, age, bugFixes, authors));
+        }
+    }
+}
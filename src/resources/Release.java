@@ -1,10 +1,9 @@
 package resources;
 
-import utility.FileItem;
+import utility.PathDictionary;
+import utility.ReleaseMetrics;
 
 import java.time.LocalDate;
-import java.util.ArrayList;
-import java.util.List;
 
 public class Release {
     private int index;
@@ -12,37 +11,35 @@ public class Release {
     private final String name;
     private final LocalDate date;
     private boolean valid;
-    private List<FileItem> fileItems;
+    private boolean carriedOver;
+    private final ReleaseMetrics metrics;
 
-    public Release(int id, String name, LocalDate date) {
+    public Release(int id, String name, LocalDate date, PathDictionary paths) {
         this.index = 0;
         this.id = id;
         this.name = name;
         this.date = date;
         this.valid = false;
-        this.fileItems = new ArrayList<>();
+        this.carriedOver = false;
+        this.metrics = new ReleaseMetrics(paths);
     }
 
-    public FileItem getFileItemByName(String name) {
-        for (FileItem item : this.fileItems) {
-            if (item.getName().equals(name)) {
-                return item;
-            }
-        }
-        return null;
+    //File metrics in insertion order
+    public ReleaseMetrics getMetrics() {
+        return this.metrics;
     }
 
-    public List<FileItem> getFileItems() {
-        return this.fileItems;
+    //A release without commits carries over the file items of the previous one
+    public boolean isCarriedOver() {
+        return this.carriedOver;
     }
 
-    public void addFileItem(FileItem fileItem) {
-        for (FileItem item : this.fileItems) {
-            if (item.getName().equals(fileItem.getName())) {
-                return;
-            }
-        }
-        this.fileItems.add(fileItem);
+    public void setCarriedOver(boolean carriedOver) {
+        this.carriedOver = carriedOver;
+    }
+
+    public void clearMetrics() {
+        this.metrics.clear();
     }
 
     public int getIndex() {
@@ -0,0 +1,65 @@
+package resources;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+//Immutable lookups over the releases sorted by date: by date (binary search), by name and by index
+public final class ReleaseTimeline {
+    private final Release[] releases;
+    private final long[] days;
+    private final Map<String, Release> byName;
+    private final Release[] byIndex;
+
+    public ReleaseTimeline(List<Release> sortedReleases) {
+        this.releases = sortedReleases.toArray(new Release[0]);
+        this.days = new long[this.releases.length];
+        this.byName = new HashMap<>();
+        this.byIndex = new Release[this.releases.length + 1];
+
+        for (int i = 0; i < this.releases.length; i++) {
+            this.days[i] = this.releases[i].getDate().toEpochDay();
+            //Same as a scan: the first release with a given name wins
+            this.byName.putIfAbsent(this.releases[i].getName(), this.releases[i]);
+            if (this.releases[i].getIndex() > 0 && this.releases[i].getIndex() < this.byIndex.length) {
+                this.byIndex[this.releases[i].getIndex()] = this.releases[i];
+            }
+        }
+    }
+
+    //First release strictly after the date, null if the date is not before the last release
+    public Release getNext(LocalDate date) {
+        long day = date.toEpochDay();
+        int low = 0;
+        int high = this.days.length;
+        int mid;
+
+        while (low < high) {
+            mid = (low + high) >>> 1;
+            if (this.days[mid] <= day) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        return low < this.releases.length ? this.releases[low] : null;
+    }
+
+    public Release getByName(String name) {
+        return this.byName.get(name);
+    }
+
+    //Indexes below the first release are clamped to it
+    public Release getByIndex(int index) {
+        if (index < 1) {
+            index = 1;
+        }
+        return index < this.byIndex.length ? this.byIndex[index] : null;
+    }
+
+    public int size() {
+        return this.releases.length;
+    }
+}
@@ -11,6 +11,7 @@ public class Ticket {
     private List<Release> affectedVersions;
     private List<Commit> commits;
     private double p;
+    private boolean estimated;
 
     public Ticket(String key) {
         this.key = key;
@@ -20,6 +21,7 @@ public class Ticket {
         this.affectedVersions = new ArrayList<>();
         this.commits = new ArrayList<>();
         this.p = 0.0;
+        this.estimated = false;
     }
 
     public List<Commit> getCommits() {
@@ -78,6 +80,19 @@ public class Ticket {
         this.affectedVersions.add(version);
     }
 
+    //True when the injected version comes from proportion instead of Jira affected versions
+    public boolean isEstimated() {
+        return this.estimated;
+    }
+
+    public void setEstimated() {
+        this.estimated = true;
+    }
+
+    void setP(double p) {
+        this.p = p;
+    }
+
     public String getKey() {
         return this.key;
     }
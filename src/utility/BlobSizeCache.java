@@ -0,0 +1,48 @@
+package utility;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class BlobSizeCache {
+    private final RepositoryReader reader;
+    private final Map<String, Integer> lines;
+
+    public BlobSizeCache(RepositoryReader reader) {
+        this.reader = reader;
+        this.lines = new ConcurrentHashMap<>();
+    }
+
+    //Line counts of the given tree entries, keyed by blob id.
+    //Blobs already counted for a previous commit are never read again
+    public Map<String, Integer> getLineCounts(List<TreeEntry> entries) throws IOException {
+        Map<String, Integer> counts = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        Integer count;
+
+        for (TreeEntry entry : entries) {
+            count = this.lines.get(entry.getBlobId());
+            if (count == null) {
+                missing.add(entry.getBlobId());
+            } else {
+                counts.put(entry.getBlobId(), count);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            for (Map.Entry<String, Integer> read : this.reader.countLines(missing).entrySet()) {
+                this.lines.put(read.getKey(), read.getValue());
+                counts.put(read.getKey(), read.getValue());
+            }
+        }
+
+        return counts;
+    }
+
+    public int size() {
+        return this.lines.size();
+    }
+}
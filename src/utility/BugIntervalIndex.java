@@ -0,0 +1,73 @@
+package utility;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+//Buggy release ranges [from, to) of every file, stored as start and end events by release index
+//Labels are materialised with one sweep over the releases, keeping the set of files inside an open range
+public class BugIntervalIndex {
+    private final int[][] starts;
+    private final int[][] ends;
+    private final int[] numStarts;
+    private final int[] numEnds;
+    private int maxFileId;
+
+    public BugIntervalIndex(int numReleases) {
+        this.starts = new int[numReleases + 2][];
+        this.ends = new int[numReleases + 2][];
+        this.numStarts = new int[numReleases + 2];
+        this.numEnds = new int[numReleases + 2];
+        this.maxFileId = -1;
+    }
+
+    public void add(int fileId, int from, int to) {
+        if (from >= to || from < 1) {
+            return;
+        }
+
+        append(this.starts, this.numStarts, from, fileId);
+        if (to < this.ends.length) {
+            append(this.ends, this.numEnds, to, fileId);
+        }
+        this.maxFileId = Math.max(this.maxFileId, fileId);
+    }
+
+    private static void append(int[][] events, int[] counts, int release, int fileId) {
+        if (events[release] == null) {
+            events[release] = new int[8];
+        } else if (counts[release] == events[release].length) {
+            events[release] = Arrays.copyOf(events[release], counts[release] * 2);
+        }
+        events[release][counts[release]++] = fileId;
+    }
+
+    public boolean isEmpty() {
+        return this.maxFileId < 0;
+    }
+
+    //Set of files inside an open range at the given release, metrics indexed by release index - 1
+    public void apply(ReleaseMetrics[] releases) {
+        int[] open = new int[this.maxFileId + 1];
+        BitSet active = new BitSet(this.maxFileId + 1);
+        int fileId;
+
+        for (int release = 1; release <= releases.length; release++) {
+            for (int i = 0; i < this.numEnds[release]; i++) {
+                fileId = this.ends[release][i];
+                if (--open[fileId] == 0) {
+                    active.clear(fileId);
+                }
+            }
+            for (int i = 0; i < this.numStarts[release]; i++) {
+                fileId = this.starts[release][i];
+                if (open[fileId]++ == 0) {
+                    active.set(fileId);
+                }
+            }
+
+            if (!active.isEmpty()) {
+                releases[release - 1].markBuggy(active);
+            }
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package utility;
+
+public class ChangeEntry {
+    private final int addedLoc;
+    private final int deletedLoc;
+    private final String path;
+
+    public ChangeEntry(int addedLoc, int deletedLoc, String path) {
+        this.addedLoc = addedLoc;
+        this.deletedLoc = deletedLoc;
+        this.path = path;
+    }
+
+    public int getAddedLoc() {
+        return this.addedLoc;
+    }
+
+    public int getDeletedLoc() {
+        return this.deletedLoc;
+    }
+
+    public String getPath() {
+        return this.path;
+    }
+}
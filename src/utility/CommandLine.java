@@ -1,19 +1,15 @@
 package utility;
 
-import java.io.BufferedReader;
-import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.util.function.Consumer;
 
 public class CommandLine {
     String command;
     String baseDir;
-    ProcessBuilder builder;
 
     public CommandLine() {
         this.command = "";
         this.baseDir = "/.";
-        this.builder = null;
     }
 
     public void setCommand(String command, String baseDir) {
@@ -21,21 +17,17 @@ public class CommandLine {
         this.baseDir = baseDir;
     }
 
+    //Whole output, with the line separators removed
     public String executeCommand() throws IOException {
-
-        ProcessBuilder processBuilder = new ProcessBuilder("sh", "-c", this.command);
-        processBuilder.directory(new File(this.baseDir));
-
-        Process p = processBuilder.start();
-
-        BufferedReader r = new BufferedReader(new InputStreamReader(p.getInputStream()));
-        String line;
         StringBuilder processOutput = new StringBuilder();
 
-        while ((line = r.readLine()) != null) {
-            processOutput.append(line);
-        }
+        executeCommand(processOutput::append);
 
         return processOutput.toString();
     }
+
+    //Streams the output line by line, without keeping it in memory
+    public void executeCommand(Consumer<String> consumer) throws IOException {
+        ProcessRunner.shell(this.command, this.baseDir).run(consumer);
+    }
 }
@@ -0,0 +1,36 @@
+package utility;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+public class CommitSnapshot {
+    private final List<TreeEntry> entries;
+    private final Map<String, Integer> lineCounts;
+    private final List<ChangeEntry> changes;
+
+    public CommitSnapshot(List<TreeEntry> entries, Map<String, Integer> lineCounts, List<ChangeEntry> changes) {
+        this.entries = entries;
+        this.lineCounts = lineCounts;
+        this.changes = changes;
+    }
+
+    //Everything the extraction needs from the repository for one commit
+    public static CommitSnapshot read(RepositoryReader reader, BlobSizeCache sizes, String commitHash) throws IOException {
+        List<TreeEntry> entries = reader.listFiles(commitHash);
+
+        return new CommitSnapshot(entries, sizes.getLineCounts(entries), reader.listChanges(commitHash));
+    }
+
+    public List<TreeEntry> getEntries() {
+        return this.entries;
+    }
+
+    public int getLineCount(TreeEntry entry) {
+        return this.lineCounts.getOrDefault(entry.getBlobId(), 0);
+    }
+
+    public List<ChangeEntry> getChanges() {
+        return this.changes;
+    }
+}
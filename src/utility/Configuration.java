@@ -0,0 +1,46 @@
+package utility;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public class Configuration {
+    private static final Logger logger = Logger.getLogger(Configuration.class.getName());
+    private static final String FILENAME = System.getProperty("user.dir") + "/run.properties";
+    private static final Properties properties = load();
+
+    private Configuration() {
+    }
+
+    private static Properties load() {
+        Properties loaded = new Properties();
+
+        //Optional run configuration, overridden by -D system properties
+        try (InputStream is = new FileInputStream(FILENAME)) {
+            loaded.load(is);
+        } catch (IOException e) {
+            logger.log(Level.FINE, "No run configuration found, using defaults");
+        }
+
+        return loaded;
+    }
+
+    public static String getString(String key, String defaultValue) {
+        return System.getProperty(key, properties.getProperty(key, defaultValue)).trim();
+    }
+
+    public static int getInt(String key, int defaultValue) {
+        return Integer.parseInt(getString(key, Integer.toString(defaultValue)));
+    }
+
+    public static double getDouble(String key, double defaultValue) {
+        return Double.parseDouble(getString(key, Double.toString(defaultValue)));
+    }
+
+    public static boolean getBoolean(String key, boolean defaultValue) {
+        return Boolean.parseBoolean(getString(key, Boolean.toString(defaultValue)));
+    }
+}
@@ -0,0 +1,117 @@
+package utility;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public class CsvRow {
+    private byte[] bytes;
+    private int length;
+    private int fields;
+    private final byte[] digits;
+
+    //A row is encoded once, then written to any number of sinks.
+    //The same instance is reused for every row
+    public CsvRow() {
+        this.bytes = new byte[256];
+        this.length = 0;
+        this.fields = 0;
+        this.digits = new byte[20];
+    }
+
+    private void ensure(int more) {
+        if (this.length + more > this.bytes.length) {
+            this.bytes = Arrays.copyOf(this.bytes, Math.max(this.bytes.length * 2, this.length + more));
+        }
+    }
+
+    private void separator() {
+        if (this.fields > 0) {
+            ensure(1);
+            this.bytes[this.length++] = ',';
+        }
+        this.fields++;
+    }
+
+    public CsvRow field(long value) {
+        long remaining = value;
+        int count = 0;
+
+        separator();
+
+        if (remaining == 0) {
+            ensure(1);
+            this.bytes[this.length++] = '0';
+            return this;
+        }
+
+        //Digits are produced from the least significant one, as negative numbers to cover Long.MIN_VALUE
+        if (remaining > 0) {
+            remaining = -remaining;
+        }
+        while (remaining != 0) {
+            this.digits[count++] = (byte) ('0' - (remaining % 10));
+            remaining = remaining / 10;
+        }
+
+        ensure(count + 1);
+        if (value < 0) {
+            this.bytes[this.length++] = '-';
+        }
+        while (count > 0) {
+            this.bytes[this.length++] = this.digits[--count];
+        }
+
+        return this;
+    }
+
+    public CsvRow field(String value) {
+        int size = value.length();
+        byte[] encoded;
+        char c;
+
+        separator();
+        ensure(size);
+
+        //Plain ASCII is copied as is, anything else goes through the UTF-8 encoder
+        for (int i = 0; i < size; i++) {
+            c = value.charAt(i);
+            if (c >= 0x80) {
+                this.length = this.length - i;
+                encoded = value.getBytes(StandardCharsets.UTF_8);
+                ensure(encoded.length);
+                System.arraycopy(encoded, 0, this.bytes, this.length, encoded.length);
+                this.length = this.length + encoded.length;
+                return this;
+            }
+            this.bytes[this.length++] = (byte) c;
+        }
+
+        return this;
+    }
+
+    public void writeTo(CsvSink... sinks) throws IOException {
+        end(sinks, false);
+    }
+
+    //Same as a row, but not counted in the rows of the sinks
+    public void writeHeaderTo(CsvSink... sinks) throws IOException {
+        end(sinks, true);
+    }
+
+    private void end(CsvSink[] sinks, boolean header) throws IOException {
+        ensure(1);
+        this.bytes[this.length++] = '\n';
+
+        for (CsvSink sink : sinks) {
+            if (header) {
+                sink.writeHeader(this.bytes, this.length);
+            } else {
+                sink.write(this.bytes, this.length);
+            }
+        }
+
+        this.length = 0;
+        this.fields = 0;
+    }
+}
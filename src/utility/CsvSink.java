@@ -0,0 +1,67 @@
+package utility;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class CsvSink implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private long rows;
+
+    public CsvSink(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        this.rows = 0;
+    }
+
+    //Data rows are counted in the rows of the sink and in the rows.written metric, header lines are not
+    public void write(byte[] bytes, int length) throws IOException {
+        put(bytes, length);
+        this.rows++;
+    }
+
+    public void writeHeader(byte[] bytes, int length) throws IOException {
+        put(bytes, length);
+    }
+
+    private void put(byte[] bytes, int length) throws IOException {
+        int offset = 0;
+        int chunk;
+
+        while (offset < length) {
+            if (!this.buffer.hasRemaining()) {
+                drain();
+            }
+            chunk = Math.min(length - offset, this.buffer.remaining());
+            this.buffer.put(bytes, offset, chunk);
+            offset = offset + chunk;
+        }
+    }
+
+    private void drain() throws IOException {
+        this.buffer.flip();
+        while (this.buffer.hasRemaining()) {
+            this.channel.write(this.buffer);
+        }
+        this.buffer.clear();
+    }
+
+    public long getRows() {
+        return this.rows;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            drain();
+            RunMetrics.increment(RunMetrics.ROWS, this.rows);
+        } finally {
+            this.channel.close();
+        }
+    }
+}
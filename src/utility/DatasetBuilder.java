@@ -0,0 +1,65 @@
+package utility;
+
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instance;
+import weka.core.Instances;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+public class DatasetBuilder {
+    private static final String[] METRICS = {"NAuth", "NR", "Age", "Size", "NFix", "LOC_Added", "ChgSetSize", "Max_ChgSetSize", "Avg_ChgSetSize"};
+    private static final String CLASS = "Buggy";
+    private static final String YES = "Yes";
+    private static final String NO = "No";
+
+    private DatasetBuilder() {
+    }
+
+    //Metrics as numeric attributes and bugginess as a {Yes,No} class, the last attribute
+    public static Instances createHeader(String relationName, int capacity) {
+        ArrayList<Attribute> attributes = new ArrayList<>();
+
+        for (String metric : METRICS) {
+            attributes.add(new Attribute(metric));
+        }
+        attributes.add(new Attribute(CLASS, Arrays.asList(YES, NO)));
+
+        Instances header = new Instances(relationName, attributes, capacity);
+        header.setClassIndex(attributes.size() - 1);
+
+        return header;
+    }
+
+    public static Instance toInstance(Instances header, ReleaseMetrics.Cursor cursor) {
+        double[] values = new double[]{
+                cursor.getNumOfAuthors(),
+                cursor.getTouchingCommits(),
+                cursor.getAge(),
+                cursor.getSize(),
+                cursor.getBugFixes(),
+                cursor.getAddedLoc(),
+                cursor.getChangeSetSize(),
+                cursor.getMaxChangeSetSize(),
+                cursor.getAvgChangeSetSize(),
+                header.classAttribute().indexOfValue(cursor.isBuggy() ? YES : NO)
+        };
+
+        Instance instance = new DenseInstance(1.0, values);
+        instance.setDataset(header);
+
+        return instance;
+    }
+
+    public static Instances build(String relationName, ReleaseMetrics metrics) {
+        Instances instances = createHeader(relationName, metrics.size());
+        ReleaseMetrics.Cursor cursor = metrics.cursor();
+
+        while (cursor.next()) {
+            instances.add(toInstance(instances, cursor));
+        }
+
+        return instances;
+    }
+}
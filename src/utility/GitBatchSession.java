@@ -0,0 +1,313 @@
+package utility;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+//Long lived "git cat-file --batch" and "git diff-tree --stdin" processes of one repository
+//Requests are piped through them instead of starting a process per commit, each one within the command timeout
+//Not thread safe
+public class GitBatchSession implements Closeable {
+    private static final int CHUNK = 64;
+    private static final String SENTINEL = "#end-of-commit";
+    private static final byte[] SENTINEL_BYTES = SENTINEL.getBytes(StandardCharsets.US_ASCII);
+    private static final String TREE_MODE = "40000";
+    private static final String SUBMODULE_MODE = "160000";
+    private final ProcessRunner catFileRunner;
+    private final ProcessRunner diffTreeRunner;
+    private final Map<String, List<String[]>> trees;
+    private Process catFile;
+    private InputStream catFileOut;
+    private OutputStream catFileIn;
+    private Process diffTree;
+    private InputStream diffTreeOut;
+    private OutputStream diffTreeIn;
+
+    //Trees are shared by the sessions of a reader: unchanged subtrees are read once
+    public GitBatchSession(String repositoryPath, Map<String, List<String[]>> trees) {
+        this.catFileRunner = new ProcessRunner(Arrays.asList("git", "cat-file", "--batch"), repositoryPath);
+        this.diffTreeRunner = new ProcessRunner(Arrays.asList("git", "diff-tree", "--stdin", "--numstat", "-r", "--root", "-M", "-z"), repositoryPath);
+        this.trees = trees;
+    }
+
+    private void startCatFile() throws IOException {
+        if (this.catFile == null) {
+            this.catFile = this.catFileRunner.start();
+            this.catFileOut = new BufferedInputStream(RunMetrics.counting(this.catFile.getInputStream(), RunMetrics.GIT_BYTES));
+            this.catFileIn = new BufferedOutputStream(this.catFile.getOutputStream());
+        }
+    }
+
+    private void startDiffTree() throws IOException {
+        if (this.diffTree == null) {
+            this.diffTree = this.diffTreeRunner.start();
+            this.diffTreeOut = new BufferedInputStream(RunMetrics.counting(this.diffTree.getInputStream(), RunMetrics.GIT_BYTES));
+            this.diffTreeIn = new BufferedOutputStream(this.diffTree.getOutputStream());
+        }
+    }
+
+    //Source files of the commit tree, in "git ls-tree -r" order
+    public List<TreeEntry> listFiles(String commitHash) throws IOException {
+        List<TreeEntry> entries = new ArrayList<>();
+
+        startCatFile();
+        return this.catFileRunner.watch(this.catFile, () -> {
+            listTree(commitHash + "^{tree}", "", entries);
+            return entries;
+        });
+    }
+
+    private void listTree(String treeId, String prefix, List<TreeEntry> entries) throws IOException {
+        List<String[]> children = this.trees.get(treeId);
+
+        if (children == null) {
+            children = readTree(treeId);
+            //The root is requested by commit, its id is unknown and would never be asked again
+            if (!treeId.endsWith("^{tree}")) {
+                this.trees.put(treeId, children);
+            }
+        }
+
+        //Every child is {mode, name, id}
+        for (String[] child : children) {
+            if (child[0].equals(TREE_MODE)) {
+                listTree(child[2], prefix + child[1] + "/", entries);
+            } else if (!child[0].equals(SUBMODULE_MODE) && child[1].endsWith(RepositoryReader.SOURCE_SUFFIX)) {
+                entries.add(new TreeEntry(prefix + child[1], child[2]));
+            }
+        }
+    }
+
+    //Tree object: "<mode> <name>\0<20 byte id>" entries
+    private List<String[]> readTree(String treeId) throws IOException {
+        List<String[]> children = new ArrayList<>();
+        byte[] content;
+        int start = 0;
+        int space;
+        int nul;
+
+        startCatFile();
+        request(this.catFileIn, treeId);
+        content = readObject();
+        if (content == null) {
+            throw new IOException("Missing tree " + treeId);
+        }
+
+        while (start < content.length) {
+            space = indexOf(content, (byte) ' ', start);
+            nul = indexOf(content, (byte) 0, space);
+            children.add(new String[]{
+                    new String(content, start, space - start, StandardCharsets.US_ASCII),
+                    new String(content, space + 1, nul - space - 1, StandardCharsets.UTF_8),
+                    toHex(content, nul + 1)
+            });
+            start = nul + 21;
+        }
+
+        return children;
+    }
+
+    //Numstat of the source files modified by the commit, merges excluded
+    //Renamed files are reported under their new path, as the JGit reader does
+    public List<ChangeEntry> listChanges(String commitHash) throws IOException {
+        startDiffTree();
+        //The sentinel is not an object name, so diff-tree echoes it after the commit diff
+        request(this.diffTreeIn, commitHash + "\n" + SENTINEL);
+
+        return this.diffTreeRunner.watch(this.diffTree, this::readChanges);
+    }
+
+    //NUL terminated records: the commit id, then "<added>\t<deleted>\t<path>" or "<added>\t<deleted>\t" followed by
+    //the old and the new path for renames. Paths are neither quoted nor escaped
+    private List<ChangeEntry> readChanges() throws IOException {
+        List<ChangeEntry> changes = new ArrayList<>();
+        String[] items;
+        String record;
+        String path;
+
+        while ((record = readRecord(true)) != null) {
+            items = record.split("\t", 3);
+            if (items.length != 3) {
+                continue;
+            }
+
+            path = items[2];
+            if (path.isEmpty()) {
+                readRecord(false);
+                path = readRecord(false);
+            }
+
+            //Binary files are reported with "-" instead of line counts
+            if (items[0].equals("-") || !path.endsWith(RepositoryReader.SOURCE_SUFFIX)) {
+                continue;
+            }
+
+            changes.add(new ChangeEntry(Integer.parseInt(items[0]), Integer.parseInt(items[1]), path));
+        }
+
+        return changes;
+    }
+
+    //Next NUL terminated record, null for the echoed sentinel line where it is expected
+    private String readRecord(boolean sentinel) throws IOException {
+        ByteArrayOutputStream record = new ByteArrayOutputStream();
+        int c;
+
+        while ((c = this.diffTreeOut.read()) != 0) {
+            if (c == -1) {
+                throw new IOException("Unexpected end of git diff-tree output");
+            }
+            if (c == '\n' && sentinel && Arrays.equals(record.toByteArray(), SENTINEL_BYTES)) {
+                return null;
+            }
+            record.write(c);
+        }
+
+        return new String(record.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    //Requests are sent by chunks small enough for the input pipe, then the answers are read
+    public Map<String, Integer> countLines(Collection<String> blobIds) throws IOException {
+        Map<String, Integer> counts = new HashMap<>();
+        List<String> chunk = new ArrayList<>(CHUNK);
+
+        startCatFile();
+
+        return this.catFileRunner.watch(this.catFile, () -> {
+            for (String blobId : blobIds) {
+                chunk.add(blobId);
+                if (chunk.size() == CHUNK) {
+                    countChunk(chunk, counts);
+                }
+            }
+            countChunk(chunk, counts);
+
+            return counts;
+        });
+    }
+
+    private void countChunk(List<String> chunk, Map<String, Integer> counts) throws IOException {
+        long size;
+
+        if (chunk.isEmpty()) {
+            return;
+        }
+
+        request(this.catFileIn, String.join("\n", chunk));
+        for (String blobId : chunk) {
+            size = readHeader();
+            if (size >= 0) {
+                counts.put(blobId, countContent(size));
+            }
+        }
+        chunk.clear();
+    }
+
+    //Blobs are counted while read, without holding their content
+    private int countContent(long size) throws IOException {
+        byte[] buffer = new byte[8192];
+        long remaining = size;
+        int lines = 0;
+        int read;
+
+        while (remaining > 0 && (read = this.catFileOut.read(buffer, 0, (int) Math.min(buffer.length, remaining))) != -1) {
+            lines = lines + LineCounter.count(buffer, 0, read);
+            remaining = remaining - read;
+        }
+
+        //Trailing newline after the content
+        if (remaining > 0 || this.catFileOut.read() == -1) {
+            throw new IOException("Unexpected end of git cat-file output");
+        }
+        return lines;
+    }
+
+    private static void request(OutputStream in, String lines) throws IOException {
+        in.write(lines.getBytes(StandardCharsets.UTF_8));
+        in.write('\n');
+        in.flush();
+    }
+
+    //Size in the "<id> <type> <size>" header of a record, -1 for "<id> missing"
+    private long readHeader() throws IOException {
+        StringBuilder header = new StringBuilder();
+        String[] items;
+        int c;
+
+        while ((c = this.catFileOut.read()) != '\n') {
+            if (c == -1) {
+                throw new IOException("Unexpected end of git cat-file output");
+            }
+            header.append((char) c);
+        }
+
+        items = header.toString().split(" ", 0);
+        return items.length == 3 ? Long.parseLong(items[2]) : -1;
+    }
+
+    //Reads one "<id> <type> <size>\n<content>\n" record, null for "<id> missing"
+    private byte[] readObject() throws IOException {
+        long size = readHeader();
+        byte[] content;
+        int read;
+        int offset = 0;
+
+        if (size < 0) {
+            return null;
+        }
+
+        content = new byte[(int) size];
+        while (offset < content.length && (read = this.catFileOut.read(content, offset, content.length - offset)) != -1) {
+            offset = offset + read;
+        }
+
+        //Trailing newline after the content
+        if (offset < content.length || this.catFileOut.read() == -1) {
+            throw new IOException("Unexpected end of git cat-file output");
+        }
+
+        return content;
+    }
+
+    private static int indexOf(byte[] bytes, byte value, int from) {
+        for (int i = from; i < bytes.length; i++) {
+            if (bytes[i] == value) {
+                return i;
+            }
+        }
+        return bytes.length;
+    }
+
+    private static String toHex(byte[] bytes, int from) {
+        StringBuilder hex = new StringBuilder(40);
+
+        for (int i = from; i < from + 20; i++) {
+            hex.append(Character.forDigit((bytes[i] >> 4) & 0xf, 16));
+            hex.append(Character.forDigit(bytes[i] & 0xf, 16));
+        }
+        return hex.toString();
+    }
+
+    @Override
+    public void close() {
+        if (this.catFile != null) {
+            this.catFile.destroy();
+            this.catFile = null;
+        }
+        if (this.diffTree != null) {
+            this.diffTree.destroy();
+            this.diffTree = null;
+        }
+    }
+}
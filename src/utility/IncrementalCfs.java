@@ -0,0 +1,247 @@
+package utility;
+
+import weka.core.Attribute;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.filters.Filter;
+import weka.filters.unsupervised.attribute.Remove;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+//Correlation based feature selection over running sufficient statistics: releases are folded in one at a time
+//and the subset search runs on the updated correlation matrix, without reading the previous releases again.
+//Correlations are Pearson ones, the class entering as one indicator column per value, and the subset merit is
+//the CFS one. Unlike weka's CfsSubsetEval nothing is discretized, so the selected subsets may differ
+public class IncrementalCfs {
+    private final int classIndex;
+    private final int[] attributes;
+    private final int numClasses;
+    private final int size;
+    private long count;
+    private final double[] mean;
+    private final double[][] comoment;
+
+    //Numeric attributes and a nominal class only
+    public IncrementalCfs(Instances header) {
+        List<Integer> numeric = new ArrayList<>();
+
+        this.classIndex = header.classIndex();
+        if (this.classIndex < 0 || !header.classAttribute().isNominal()) {
+            throw new IllegalArgumentException("Nominal class required");
+        }
+
+        for (int i = 0; i < header.numAttributes(); i++) {
+            if (i == this.classIndex) {
+                continue;
+            }
+            if (!header.attribute(i).isNumeric()) {
+                throw new IllegalArgumentException("Numeric attributes only: " + header.attribute(i).name());
+            }
+            numeric.add(i);
+        }
+
+        this.attributes = numeric.stream().mapToInt(Integer::intValue).toArray();
+        this.numClasses = header.numClasses();
+        this.size = this.attributes.length + this.numClasses;
+        this.count = 0;
+        this.mean = new double[this.size];
+        this.comoment = new double[this.size][this.size];
+    }
+
+    private IncrementalCfs(IncrementalCfs other) {
+        this.classIndex = other.classIndex;
+        this.attributes = other.attributes;
+        this.numClasses = other.numClasses;
+        this.size = other.size;
+        this.count = other.count;
+        this.mean = other.mean.clone();
+        this.comoment = new double[this.size][];
+        for (int i = 0; i < this.size; i++) {
+            this.comoment[i] = other.comoment[i].clone();
+        }
+    }
+
+    //Statistics of the releases folded so far, further releases are not seen by the copy
+    public IncrementalCfs copy() {
+        return new IncrementalCfs(this);
+    }
+
+    private double[] toRow(Instance instance) {
+        double[] row = new double[this.size];
+
+        for (int i = 0; i < this.attributes.length; i++) {
+            row[i] = instance.value(this.attributes[i]);
+        }
+        row[this.attributes.length + (int) instance.classValue()] = 1;
+        return row;
+    }
+
+    //Two passes over the release, then its moments are merged into the running ones
+    //Instances with missing values are skipped
+    public void add(Instances release) {
+        List<double[]> rows = new ArrayList<>(release.numInstances());
+        double[] batchMean = new double[this.size];
+        double[][] batchComoment = new double[this.size][this.size];
+        double[] delta;
+        long total;
+        double weight;
+
+        for (Instance instance : release) {
+            if (!instance.hasMissingValue()) {
+                rows.add(toRow(instance));
+            }
+        }
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        for (double[] row : rows) {
+            for (int i = 0; i < this.size; i++) {
+                batchMean[i] = batchMean[i] + row[i];
+            }
+        }
+        for (int i = 0; i < this.size; i++) {
+            batchMean[i] = batchMean[i] / rows.size();
+        }
+        for (double[] row : rows) {
+            for (int i = 0; i < this.size; i++) {
+                for (int j = i; j < this.size; j++) {
+                    batchComoment[i][j] = batchComoment[i][j] + (row[i] - batchMean[i]) * (row[j] - batchMean[j]);
+                }
+            }
+        }
+
+        //Pairwise merge of the two sets of moments
+        total = this.count + rows.size();
+        weight = (double) this.count * rows.size() / total;
+        delta = new double[this.size];
+        for (int i = 0; i < this.size; i++) {
+            delta[i] = batchMean[i] - this.mean[i];
+        }
+        for (int i = 0; i < this.size; i++) {
+            for (int j = i; j < this.size; j++) {
+                this.comoment[i][j] = this.comoment[i][j] + batchComoment[i][j] + delta[i] * delta[j] * weight;
+            }
+            this.mean[i] = this.mean[i] + delta[i] * rows.size() / total;
+        }
+        this.count = total;
+    }
+
+    //Absolute Pearson correlation, 0 when a column is constant
+    private double correlation(int i, int j) {
+        double varianceI = this.comoment[i][i];
+        double varianceJ = this.comoment[j][j];
+
+        if (varianceI <= 0 || varianceJ <= 0) {
+            return 0;
+        }
+        return Math.abs(this.comoment[Math.min(i, j)][Math.max(i, j)] / Math.sqrt(varianceI * varianceJ));
+    }
+
+    //Correlation with the class, the per value ones weighted by the class prior
+    private double classCorrelation(int attribute) {
+        double correlation = 0;
+        int column;
+
+        for (int c = 0; c < this.numClasses; c++) {
+            column = this.attributes.length + c;
+            correlation = correlation + this.mean[column] * correlation(attribute, column);
+        }
+        return correlation;
+    }
+
+    private static double merit(boolean[] subset, double[] classCorrelations, double[][] correlations) {
+        double relevance = 0;
+        double redundancy = 0;
+        int k = 0;
+
+        for (int i = 0; i < subset.length; i++) {
+            if (!subset[i]) {
+                continue;
+            }
+            k++;
+            relevance = relevance + classCorrelations[i];
+            for (int j = i + 1; j < subset.length; j++) {
+                if (subset[j]) {
+                    redundancy = redundancy + correlations[i][j];
+                }
+            }
+        }
+
+        return k == 0 ? 0 : relevance / Math.sqrt(k + 2 * redundancy);
+    }
+
+    //Backward greedy search from the whole set: the attribute whose removal improves the merit most is dropped,
+    //until no removal improves it. Returns the indexes of the selected attributes, class included, in header order
+    public int[] select() {
+        int n = this.attributes.length;
+        double[] classCorrelations = new double[n];
+        double[][] correlations = new double[n][n];
+        boolean[] subset = new boolean[n];
+        double best;
+        double merit;
+        int removed;
+        int[] selected;
+        int k = 0;
+
+        for (int i = 0; i < n; i++) {
+            classCorrelations[i] = classCorrelation(i);
+            for (int j = i + 1; j < n; j++) {
+                correlations[i][j] = correlation(i, j);
+            }
+        }
+
+        Arrays.fill(subset, true);
+        best = merit(subset, classCorrelations, correlations);
+        do {
+            removed = -1;
+            for (int i = 0; i < n; i++) {
+                if (!subset[i]) {
+                    continue;
+                }
+                subset[i] = false;
+                merit = merit(subset, classCorrelations, correlations);
+                subset[i] = true;
+                if (merit > best) {
+                    best = merit;
+                    removed = i;
+                }
+            }
+            if (removed >= 0) {
+                subset[removed] = false;
+            }
+        } while (removed >= 0);
+
+        selected = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            if (subset[i]) {
+                selected[k++] = this.attributes[i];
+            }
+        }
+        selected[k++] = this.classIndex;
+        selected = Arrays.copyOf(selected, k);
+        Arrays.sort(selected);
+        return selected;
+    }
+
+    //Training and testing sets reduced to the selected attributes, kept in header order
+    public Instances[] apply(Instances training, Instances testing) throws Exception {
+        Remove remove = new Remove();
+        Instances filteredTraining;
+        Instances filteredTesting;
+        Attribute classAttribute = training.classAttribute();
+
+        remove.setAttributeIndicesArray(select());
+        remove.setInvertSelection(true);
+        remove.setInputFormat(training);
+
+        filteredTraining = Filter.useFilter(training, remove);
+        filteredTesting = Filter.useFilter(testing, remove);
+        filteredTraining.setClass(filteredTraining.attribute(classAttribute.name()));
+        filteredTesting.setClass(filteredTesting.attribute(classAttribute.name()));
+
+        return new Instances[]{filteredTraining, filteredTesting};
+    }
+}
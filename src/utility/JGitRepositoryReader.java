@@ -0,0 +1,138 @@
+package utility;
+
+import org.eclipse.jgit.diff.DiffAlgorithm;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.diff.DiffFormatter;
+import org.eclipse.jgit.diff.Edit;
+import org.eclipse.jgit.diff.RawTextComparator;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevTree;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.PathSuffixFilter;
+import org.eclipse.jgit.util.io.DisabledOutputStream;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class JGitRepositoryReader implements RepositoryReader {
+    private final Repository repository;
+
+    public JGitRepositoryReader(String repositoryPath) throws IOException {
+        this.repository = new FileRepositoryBuilder()
+                .setWorkTree(new File(repositoryPath))
+                .readEnvironment()
+                .setMustExist(true)
+                .build();
+    }
+
+    private RevCommit parseCommit(RevWalk walk, String commitHash) throws IOException {
+        ObjectId id = this.repository.resolve(commitHash);
+        if (id == null) {
+            throw new IOException("Unknown commit " + commitHash);
+        }
+        return walk.parseCommit(id);
+    }
+
+    @Override
+    public List<TreeEntry> listFiles(String commitHash) throws IOException {
+        List<TreeEntry> entries = new ArrayList<>();
+
+        try (RevWalk walk = new RevWalk(this.repository); TreeWalk treeWalk = new TreeWalk(this.repository)) {
+            treeWalk.addTree(parseCommit(walk, commitHash).getTree());
+            treeWalk.setRecursive(true);
+            treeWalk.setFilter(PathSuffixFilter.create(SOURCE_SUFFIX));
+
+            while (treeWalk.next()) {
+                entries.add(new TreeEntry(treeWalk.getPathString(), treeWalk.getObjectId(0).name()));
+            }
+        }
+
+        return entries;
+    }
+
+    @Override
+    public List<ChangeEntry> listChanges(String commitHash) throws IOException {
+        List<ChangeEntry> changes = new ArrayList<>();
+        RevTree parentTree = null;
+        String path;
+        int addedLoc;
+        int deletedLoc;
+
+        try (RevWalk walk = new RevWalk(this.repository); DiffFormatter formatter = new DiffFormatter(DisabledOutputStream.INSTANCE)) {
+            RevCommit commit = parseCommit(walk, commitHash);
+
+            //Same as "git show --numstat": merge commits report no changes
+            if (commit.getParentCount() > 1) {
+                return changes;
+            }
+            if (commit.getParentCount() == 1) {
+                parentTree = walk.parseCommit(commit.getParent(0)).getTree();
+            }
+
+            formatter.setRepository(this.repository);
+            //Same line counts as git, whose default is Myers while JGit defaults to histogram
+            formatter.setDiffAlgorithm(DiffAlgorithm.getAlgorithm(DiffAlgorithm.SupportedAlgorithm.MYERS));
+            formatter.setDiffComparator(RawTextComparator.DEFAULT);
+            formatter.setDetectRenames(true);
+
+            for (DiffEntry diff : formatter.scan(parentTree, commit.getTree())) {
+                //Renamed files are reported under their new path, not as "{old => new}"
+                path = diff.getChangeType() == DiffEntry.ChangeType.DELETE ? diff.getOldPath() : diff.getNewPath();
+                if (!path.endsWith(SOURCE_SUFFIX)) {
+                    continue;
+                }
+
+                addedLoc = 0;
+                deletedLoc = 0;
+                for (Edit edit : formatter.toFileHeader(diff).toEditList()) {
+                    addedLoc = addedLoc + edit.getLengthB();
+                    deletedLoc = deletedLoc + edit.getLengthA();
+                }
+
+                changes.add(new ChangeEntry(addedLoc, deletedLoc, path));
+            }
+        }
+
+        return changes;
+    }
+
+    @Override
+    public Map<String, Integer> countLines(Collection<String> blobIds) throws IOException {
+        Map<String, Integer> counts = new HashMap<>();
+        byte[] buffer = new byte[8192];
+        int read;
+        int lines;
+
+        try (ObjectReader objectReader = this.repository.newObjectReader()) {
+            for (String blobId : blobIds) {
+                lines = 0;
+
+                try (InputStream stream = RunMetrics.counting(objectReader.open(ObjectId.fromString(blobId)).openStream(), RunMetrics.GIT_BYTES)) {
+                    while ((read = stream.read(buffer)) != -1) {
+                        lines = lines + LineCounter.count(buffer, 0, read);
+                    }
+                }
+
+                counts.put(blobId, lines);
+            }
+        }
+
+        return counts;
+    }
+
+    @Override
+    public void close() {
+        this.repository.close();
+    }
+}
@@ -0,0 +1,168 @@
+package utility;
+
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class JiraClient {
+    private static final String DEFAULT_URL = "https://issues.apache.org/jira";
+    private final String baseUrl;
+    private final Path objects;
+    private final Path refs;
+    private final boolean cache;
+    private final boolean offline;
+    private final int threads;
+
+    //Responses are stored by the SHA-256 of their body, and every request URL points to its body
+    public JiraClient() {
+        Path cacheDir = Paths.get(Configuration.getString("jira.cache.dir", System.getProperty("user.dir") + "/data/cache/jira"));
+
+        this.baseUrl = Configuration.getString("jira.url", DEFAULT_URL);
+        this.objects = cacheDir.resolve("objects");
+        this.refs = cacheDir.resolve("refs");
+        this.cache = Configuration.getBoolean("jira.cache", true);
+        this.offline = Configuration.getBoolean("jira.offline", false);
+        this.threads = Configuration.getInt("jira.threads", 4);
+    }
+
+    private static String sha256(byte[] bytes) {
+        return toHex(digest().digest(bytes));
+    }
+
+    private static MessageDigest digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] hash) {
+        StringBuilder hex = new StringBuilder();
+
+        for (byte b : hash) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    private static JSONObject parse(Path body) throws IOException {
+        //The tokener pulls the body from the reader, it is never held as a whole string
+        try (Reader reader = Files.newBufferedReader(body, StandardCharsets.UTF_8)) {
+            return new JSONObject(new JSONTokener(reader));
+        }
+    }
+
+    private Path download(String url) throws IOException {
+        MessageDigest md = digest();
+        Path tmp;
+        Path body;
+
+        Files.createDirectories(this.objects);
+        tmp = Files.createTempFile(this.objects, "download", ".tmp");
+
+        try (InputStream is = new DigestInputStream(RunMetrics.counting(new URL(url).openStream(), RunMetrics.JIRA_BYTES), md)) {
+            Files.copy(is, tmp, StandardCopyOption.REPLACE_EXISTING);
+
+            body = this.objects.resolve(toHex(md.digest()) + ".json");
+            Files.move(tmp, body, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+
+        return body;
+    }
+
+    public JSONObject get(String path) throws IOException {
+        return get(path, false);
+    }
+
+    //With refresh the cached response is ignored, and replaced by the downloaded one
+    public JSONObject get(String path, boolean refresh) throws IOException {
+        String url = this.baseUrl + path;
+        Path ref = this.refs.resolve(sha256(url.getBytes(StandardCharsets.UTF_8)));
+        Path body;
+
+        if (this.cache && (!refresh || this.offline) && Files.exists(ref)) {
+            body = this.objects.resolve(new String(Files.readAllBytes(ref), StandardCharsets.UTF_8).trim());
+            if (Files.exists(body)) {
+                return parse(body);
+            }
+        }
+
+        if (this.offline) {
+            throw new IOException("Offline mode, no cached response for " + url);
+        }
+
+        body = download(url);
+
+        if (!this.cache) {
+            try {
+                return parse(body);
+            } finally {
+                Files.deleteIfExists(body);
+            }
+        }
+
+        Files.createDirectories(this.refs);
+        Files.write(ref, body.getFileName().toString().getBytes(StandardCharsets.UTF_8));
+
+        return parse(body);
+    }
+
+    //Search result pages in order. Once the first page gives the total, the remaining ones are fetched concurrently
+    public List<JSONObject> search(String jql, String fields, int pageSize, boolean refresh) throws IOException {
+        String query = "/rest/api/2/search?jql=" + jql + "&fields=" + fields + "&maxResults=" + pageSize + "&startAt=";
+        List<JSONObject> pages = new ArrayList<>();
+        List<Future<JSONObject>> pending = new ArrayList<>();
+        ExecutorService executor;
+        JSONObject first = get(query + 0, refresh);
+        int total = first.getInt("total");
+        //The server may serve fewer results per page than requested
+        int step = first.optInt("maxResults", pageSize) > 0 ? first.optInt("maxResults", pageSize) : pageSize;
+
+        pages.add(first);
+        if (total <= step) {
+            return pages;
+        }
+
+        executor = Executors.newFixedThreadPool(this.threads);
+        try {
+            for (int startAt = step; startAt < total; startAt = startAt + step) {
+                String page = query + startAt;
+                pending.add(executor.submit(() -> get(page, refresh)));
+            }
+
+            for (Future<JSONObject> page : pending) {
+                pages.add(page.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        return pages;
+    }
+}
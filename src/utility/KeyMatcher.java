@@ -0,0 +1,48 @@
+package utility;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class KeyMatcher {
+    private final Set<String> keys;
+    private final Pattern pattern;
+
+    //Keys are in the Jira form PREFIX-NUMBER, all the prefixes are compiled into one pattern
+    public KeyMatcher(Collection<String> keys) {
+        Set<String> prefixes = new TreeSet<>();
+        StringBuilder regex = new StringBuilder();
+
+        this.keys = new LinkedHashSet<>(keys);
+
+        for (String key : this.keys) {
+            prefixes.add(key.substring(0, key.lastIndexOf('-')));
+        }
+
+        for (String prefix : prefixes) {
+            if (regex.length() > 0) {
+                regex.append("|");
+            }
+            regex.append(Pattern.quote(prefix));
+        }
+
+        this.pattern = Pattern.compile("(?:" + regex + ")-\\d+");
+    }
+
+    //Known keys mentioned in the text, in order of first appearance
+    public Set<String> find(CharSequence text) {
+        Set<String> found = new LinkedHashSet<>();
+        Matcher matcher = this.pattern.matcher(text);
+
+        while (matcher.find()) {
+            if (this.keys.contains(matcher.group())) {
+                found.add(matcher.group());
+            }
+        }
+
+        return found;
+    }
+}
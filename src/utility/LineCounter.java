@@ -0,0 +1,20 @@
+package utility;
+
+public class LineCounter {
+
+    private LineCounter() {
+    }
+
+    //Counts newline characters, matching the output of "wc -l"
+    public static int count(byte[] buffer, int offset, int length) {
+        int lines = 0;
+
+        for (int i = offset; i < offset + length; i++) {
+            if (buffer[i] == '\n') {
+                lines++;
+            }
+        }
+
+        return lines;
+    }
+}
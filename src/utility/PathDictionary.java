@@ -0,0 +1,44 @@
+package utility;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+//Dense ids for file paths, shared by the metrics of every release
+public class PathDictionary {
+    private final Map<String, Integer> ids;
+    private final List<String> paths;
+
+    public PathDictionary() {
+        this.ids = new HashMap<>();
+        this.paths = new ArrayList<>();
+    }
+
+    public int getId(String path) {
+        Integer id = this.ids.get(path);
+
+        if (id == null) {
+            id = this.paths.size();
+            this.ids.put(path, id);
+            this.paths.add(path);
+        }
+
+        return id;
+    }
+
+    //-1 if the path has never been seen
+    public int find(String path) {
+        Integer id = this.ids.get(path);
+
+        return id == null ? -1 : id;
+    }
+
+    public String getPath(int id) {
+        return this.paths.get(id);
+    }
+
+    public int size() {
+        return this.paths.size();
+    }
+}
@@ -0,0 +1,158 @@
+package utility;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+//Runs an external command: stdout is streamed line by line, stderr is drained on its own thread
+//A command running longer than the timeout is killed, a non zero exit status is an IOException
+public class ProcessRunner {
+    private static final Logger logger = Logger.getLogger(ProcessRunner.class.getName());
+    private static final int STDERR_LINES = 20;
+    private static final ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "process-watchdog");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final List<String> command;
+    private final File directory;
+    private long timeout;
+
+    public ProcessRunner(List<String> command, String directory) {
+        this.command = command;
+        this.directory = new File(directory);
+        this.timeout = Configuration.getInt("command.timeout", 600);
+    }
+
+    public static ProcessRunner shell(String command, String directory) {
+        return new ProcessRunner(Arrays.asList("sh", "-c", command), directory);
+    }
+
+    //Seconds, 0 for no limit
+    public void setTimeout(long timeout) {
+        this.timeout = timeout;
+    }
+
+    public String getCommand() {
+        return String.join(" ", this.command);
+    }
+
+    private Process startProcess() throws IOException {
+        ProcessBuilder processBuilder = new ProcessBuilder(this.command);
+        processBuilder.directory(this.directory);
+
+        RunMetrics.increment(RunMetrics.PROCESSES, 1);
+        return processBuilder.start();
+    }
+
+    //Starts the process with stderr already drained, for long lived sessions
+    public Process start() throws IOException {
+        Process p = startProcess();
+
+        drain(p, new ArrayDeque<>());
+        return p;
+    }
+
+    //One request to a long lived process, which is killed if the request takes longer than the timeout
+    public <T> T watch(Process p, Request<T> request) throws IOException {
+        ScheduledFuture<?> kill = this.timeout > 0 ? watchdog.schedule(() -> kill(p), this.timeout, TimeUnit.SECONDS) : null;
+
+        try {
+            return request.call();
+        } catch (IOException e) {
+            if (kill != null && kill.isDone()) {
+                throw new IOException("Timed out after " + this.timeout + "s: " + getCommand(), e);
+            }
+            throw e;
+        } finally {
+            if (kill != null) {
+                kill.cancel(false);
+            }
+        }
+    }
+
+    public interface Request<T> {
+        T call() throws IOException;
+    }
+
+    public void run(Consumer<String> consumer) throws IOException {
+        Process p = startProcess();
+        Deque<String> stderr = new ArrayDeque<>();
+        Thread drainer = drain(p, stderr);
+        ScheduledFuture<?> kill = this.timeout > 0 ? watchdog.schedule(() -> kill(p), this.timeout, TimeUnit.SECONDS) : null;
+        int exitCode;
+
+        try (BufferedReader r = new BufferedReader(new InputStreamReader(RunMetrics.counting(p.getInputStream(), RunMetrics.GIT_BYTES), StandardCharsets.UTF_8))) {
+            String line;
+
+            while ((line = r.readLine()) != null) {
+                consumer.accept(line);
+            }
+
+            exitCode = p.waitFor();
+            drainer.join(TimeUnit.SECONDS.toMillis(1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            kill(p);
+            throw new IOException("Interrupted while running " + getCommand(), e);
+        } finally {
+            if (kill != null) {
+                kill.cancel(false);
+            }
+        }
+
+        if (kill != null && kill.isDone() && !kill.isCancelled()) {
+            throw new IOException("Timed out after " + this.timeout + "s: " + getCommand());
+        }
+        if (exitCode != 0) {
+            synchronized (stderr) {
+                throw new IOException("Exit status " + exitCode + ": " + getCommand() + System.lineSeparator() + String.join(System.lineSeparator(), stderr));
+            }
+        }
+    }
+
+    //Children of "sh -c" would keep the output open after the shell is gone
+    private static void kill(Process p) {
+        p.descendants().forEach(ProcessHandle::destroyForcibly);
+        p.destroyForcibly();
+    }
+
+    //Keeps the last stderr lines, reported if the command fails
+    private Thread drain(Process p, Deque<String> tail) {
+        String name = getCommand();
+        Thread thread = new Thread(() -> {
+            try (BufferedReader r = new BufferedReader(new InputStreamReader(p.getErrorStream(), StandardCharsets.UTF_8))) {
+                String line;
+
+                while ((line = r.readLine()) != null) {
+                    logger.log(Level.FINE, "{}", name + ": " + line);
+                    synchronized (tail) {
+                        if (tail.size() == STDERR_LINES) {
+                            tail.removeFirst();
+                        }
+                        tail.addLast(line);
+                    }
+                }
+            } catch (IOException e) {
+                logger.log(Level.FINE, "{}", "stderr of " + name + " closed: " + e.getMessage());
+            }
+        }, "stderr-drain");
+
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+}
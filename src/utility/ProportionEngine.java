@@ -0,0 +1,104 @@
+package utility;
+
+import java.util.Arrays;
+
+//Injected version estimation by proportion, over the release indexes of the tickets in processing order
+//P = (FV - IV) / (FV - OV) of the tickets with a known IV, estimated IV = FV - (FV - OV) * P
+public class ProportionEngine {
+    public static final int SKIP = -1;
+    public static final int UNKNOWN = 0;
+
+    public enum Strategy {
+        //Average P of all the previous tickets with a known IV
+        INCREMENTAL,
+        //Fixed P, usually computed on other projects
+        COLDSTART,
+        //Average P of the last tickets with a known IV
+        WINDOW
+    }
+
+    private final Strategy strategy;
+    private final double coldStartP;
+    private final int window;
+
+    public ProportionEngine(Strategy strategy, double coldStartP, int window) {
+        this.strategy = strategy;
+        this.coldStartP = coldStartP;
+        this.window = Math.max(1, window);
+    }
+
+    public static double computeP(int ov, int fv, int iv) {
+        return (double) (fv - iv) / (double) (fv - ov);
+    }
+
+    //iv holds a known index, UNKNOWN to be estimated or SKIP; estimates are returned, clamped to the first release
+    public int[] estimate(int[] ov, int[] fv, int[] iv) {
+        int[] estimated = iv.clone();
+        double[] last = new double[this.window];
+        double sum = 0.0;
+        double p;
+        int known = 0;
+
+        for (int i = 0; i < iv.length; i++) {
+            if (iv[i] == SKIP) {
+                continue;
+            }
+
+            if (iv[i] != UNKNOWN) {
+                p = computeP(ov[i], fv[i], iv[i]);
+                if (this.strategy == Strategy.WINDOW) {
+                    //Ring buffer of the last P values
+                    if (known >= this.window) {
+                        sum = sum - last[known % this.window];
+                    }
+                    last[known % this.window] = p;
+                    sum = sum + p;
+                } else {
+                    //Same running average as the former computeProportion
+                    sum = ((sum * known) + p) / (known + 1);
+                }
+                known++;
+                continue;
+            }
+
+            p = currentP(sum, known);
+            if (p == 0.0) {
+                //Simple method
+                estimated[i] = ov[i] - 1;
+            } else {
+                estimated[i] = (int) (fv[i] - (fv[i] - ov[i]) * p);
+            }
+            estimated[i] = Math.max(1, estimated[i]);
+        }
+
+        return estimated;
+    }
+
+    private double currentP(double sum, int known) {
+        switch (this.strategy) {
+            case COLDSTART:
+                return this.coldStartP;
+            case WINDOW:
+                return known == 0 ? 0.0 : sum / Math.min(known, this.window);
+            default:
+                return known == 0 ? 0.0 : sum;
+        }
+    }
+
+    //Median of the average P of other projects, the usual cold start value
+    public static double median(double[] values) {
+        double[] sorted;
+
+        if (values.length == 0) {
+            return 0.0;
+        }
+
+        sorted = values.clone();
+        Arrays.sort(sorted);
+
+        if (sorted.length % 2 == 1) {
+            return sorted[sorted.length / 2];
+        }
+        return (sorted[sorted.length / 2 - 1] + sorted[sorted.length / 2]) / 2;
+    }
+}
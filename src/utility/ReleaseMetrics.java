@@ -0,0 +1,493 @@
+package utility;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.BitSet;
+
+//File metrics of a release, one primitive column per metric
+//Rows are in insertion order and are addressed through the dense id of the path
+//Finished releases can be spilled to disk: only the files they hold and their pending labels stay in memory
+public class ReleaseMetrics {
+    private static final int INITIAL_CAPACITY = 64;
+    private final PathDictionary paths;
+    private Columns columns;
+    private Path spillFile;
+    private int spilledRows;
+    private BitSet spilledFiles;
+    private BitSet pendingBuggy;
+
+    public ReleaseMetrics(PathDictionary paths) {
+        this.paths = paths;
+        this.columns = new Columns(INITIAL_CAPACITY);
+        this.spillFile = null;
+    }
+
+    //Columns may be shared by several releases, the first write takes a private copy
+    //The spill file belongs to the columns, so the releases sharing them write it once
+    private static class Columns {
+        private int owners;
+        private Path file;
+        private int rows;
+        private int[] rowOf;
+        private int[] fileIds;
+        private int[] size;
+        private int[] touchingCommits;
+        private int[] numOfAuthors;
+        private int[] bugFixes;
+        private long[] age;
+        private int[] changeSetSize;
+        private int[] maxChangeSetSize;
+        private int[] avgChangeSetSize;
+        private int[] addedLoc;
+        private BitSet buggy;
+
+        private Columns(int capacity) {
+            this.owners = 1;
+            this.file = null;
+            this.rows = 0;
+            this.rowOf = new int[0];
+            this.fileIds = new int[capacity];
+            this.size = new int[capacity];
+            this.touchingCommits = new int[capacity];
+            this.numOfAuthors = new int[capacity];
+            this.bugFixes = new int[capacity];
+            this.age = new long[capacity];
+            this.changeSetSize = new int[capacity];
+            this.maxChangeSetSize = new int[capacity];
+            this.avgChangeSetSize = new int[capacity];
+            this.addedLoc = new int[capacity];
+            this.buggy = new BitSet();
+        }
+
+        private Columns copy(int capacity) {
+            Columns copy = new Columns(0);
+
+            copy.rows = this.rows;
+            copy.rowOf = this.rowOf.clone();
+            copy.fileIds = Arrays.copyOf(this.fileIds, capacity);
+            copy.size = Arrays.copyOf(this.size, capacity);
+            copy.touchingCommits = Arrays.copyOf(this.touchingCommits, capacity);
+            copy.numOfAuthors = Arrays.copyOf(this.numOfAuthors, capacity);
+            copy.bugFixes = Arrays.copyOf(this.bugFixes, capacity);
+            copy.age = Arrays.copyOf(this.age, capacity);
+            copy.changeSetSize = Arrays.copyOf(this.changeSetSize, capacity);
+            copy.maxChangeSetSize = Arrays.copyOf(this.maxChangeSetSize, capacity);
+            copy.avgChangeSetSize = Arrays.copyOf(this.avgChangeSetSize, capacity);
+            copy.addedLoc = Arrays.copyOf(this.addedLoc, capacity);
+            copy.buggy = (BitSet) this.buggy.clone();
+
+            return copy;
+        }
+    }
+
+    //Columns to be read, loaded back if the release was spilled
+    private Columns columns() {
+        if (this.columns == null) {
+            load();
+        }
+        return this.columns;
+    }
+
+    //Columns to be written: a shared set is copied and left to the other owners
+    private Columns writable() {
+        Columns c = columns();
+
+        if (c.owners > 1) {
+            c.owners--;
+            this.columns = c.copy(Math.max(c.rows, INITIAL_CAPACITY));
+        }
+        this.columns.file = null;
+        return this.columns;
+    }
+
+    private void dropColumns() {
+        if (this.columns != null) {
+            this.columns.owners--;
+            this.columns = null;
+        }
+    }
+
+    public void clear() {
+        dropColumns();
+        this.columns = new Columns(INITIAL_CAPACITY);
+        this.spillFile = null;
+    }
+
+    public int size() {
+        return this.columns == null ? this.spilledRows : this.columns.rows;
+    }
+
+    public boolean isSpilled() {
+        return this.columns == null;
+    }
+
+    //Writes the rows to the directory, unless unchanged since they were last spilled by any owner, and frees the columns
+    public void spill(Path directory) throws IOException {
+        Columns c = this.columns;
+
+        if (c == null || c.rows == 0) {
+            return;
+        }
+
+        if (c.file == null) {
+            c.file = Files.createTempFile(directory, "release", ".bin");
+            c.file.toFile().deleteOnExit();
+
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(c.file)))) {
+                out.writeInt(c.rows);
+                for (int row = 0; row < c.rows; row++) {
+                    out.writeInt(c.fileIds[row]);
+                    out.writeInt(c.size[row]);
+                    out.writeInt(c.touchingCommits[row]);
+                    out.writeInt(c.numOfAuthors[row]);
+                    out.writeInt(c.bugFixes[row]);
+                    out.writeInt(c.changeSetSize[row]);
+                    out.writeInt(c.maxChangeSetSize[row]);
+                    out.writeInt(c.avgChangeSetSize[row]);
+                    out.writeInt(c.addedLoc[row]);
+                    out.writeLong(c.age[row]);
+                    out.writeBoolean(c.buggy.get(row));
+                }
+            }
+        }
+
+        this.spillFile = c.file;
+        this.spilledRows = c.rows;
+        this.spilledFiles = new BitSet();
+        for (int row = 0; row < c.rows; row++) {
+            this.spilledFiles.set(c.fileIds[row]);
+        }
+        this.pendingBuggy = new BitSet();
+        dropColumns();
+    }
+
+    private void load() {
+        Columns c;
+        int fileId;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(this.spillFile)))) {
+            c = new Columns(Math.max(this.spilledRows, INITIAL_CAPACITY));
+            c.rows = in.readInt();
+            c.rowOf = new int[this.spilledFiles.length()];
+
+            for (int row = 0; row < c.rows; row++) {
+                fileId = in.readInt();
+                c.rowOf[fileId] = row + 1;
+                c.fileIds[row] = fileId;
+                c.size[row] = in.readInt();
+                c.touchingCommits[row] = in.readInt();
+                c.numOfAuthors[row] = in.readInt();
+                c.bugFixes[row] = in.readInt();
+                c.changeSetSize[row] = in.readInt();
+                c.maxChangeSetSize[row] = in.readInt();
+                c.avgChangeSetSize[row] = in.readInt();
+                c.addedLoc[row] = in.readInt();
+                c.age[row] = in.readLong();
+                c.buggy.set(row, in.readBoolean() || this.pendingBuggy.get(fileId));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        //Labels received while spilled are not in the file yet
+        if (this.pendingBuggy.isEmpty()) {
+            c.file = this.spillFile;
+        }
+        this.columns = c;
+        this.spilledFiles = null;
+        this.pendingBuggy = null;
+    }
+
+    public PathDictionary getPaths() {
+        return this.paths;
+    }
+
+    //Row of the file, -1 if the release has no item for it
+    public int find(int fileId) {
+        Columns c = columns();
+
+        if (fileId < 0 || fileId >= c.rowOf.length) {
+            return -1;
+        }
+        return c.rowOf[fileId] - 1;
+    }
+
+    public int find(String path) {
+        return find(this.paths.find(path));
+    }
+
+    //Row of the file, appended with zeroed metrics if missing
+    public int add(int fileId) {
+        Columns c;
+        int row = find(fileId);
+
+        if (row >= 0) {
+            return row;
+        }
+
+        c = writable();
+        if (fileId >= c.rowOf.length) {
+            c.rowOf = Arrays.copyOf(c.rowOf, Math.max(fileId + 1, c.rowOf.length * 2));
+        }
+        if (c.rows == c.fileIds.length) {
+            this.columns = c.copy(c.rows * 2);
+            c = this.columns;
+        }
+
+        row = c.rows++;
+        //Stored shifted by one, so that the zeroed array means "no row"
+        c.rowOf[fileId] = row + 1;
+        c.fileIds[row] = fileId;
+
+        return row;
+    }
+
+    //Shares the rows of another release until one of the two is written
+    //A spilled release shares its file instead, spill files are never rewritten in place
+    public void shareFrom(ReleaseMetrics other) {
+        //Dropping its own columns first would leave nothing to share
+        if (other == this) {
+            return;
+        }
+
+        dropColumns();
+
+        //Neither loaded nor spilled: nothing to share, the release starts empty
+        if (other.columns == null && other.spillFile == null) {
+            this.columns = new Columns(INITIAL_CAPACITY);
+            this.spillFile = null;
+            return;
+        }
+
+        if (other.columns == null) {
+            this.spillFile = other.spillFile;
+            this.spilledRows = other.spilledRows;
+            this.spilledFiles = other.spilledFiles;
+            this.pendingBuggy = (BitSet) other.pendingBuggy.clone();
+            return;
+        }
+
+        this.spillFile = null;
+        this.columns = other.columns;
+        this.columns.owners++;
+    }
+
+    public boolean isShared() {
+        return this.columns != null && this.columns.owners > 1;
+    }
+
+    //Labels the given files as buggy, if present: a spilled release records them without being loaded
+    public void markBuggy(BitSet fileIds) {
+        BitSet present;
+        Columns c;
+
+        if (this.columns == null) {
+            present = (BitSet) fileIds.clone();
+            present.and(this.spilledFiles);
+            this.pendingBuggy.or(present);
+            return;
+        }
+
+        c = columns();
+        for (int row = 0; row < c.rows; row++) {
+            if (fileIds.get(c.fileIds[row]) && !c.buggy.get(row)) {
+                writable().buggy.set(row);
+                c = this.columns;
+            }
+        }
+    }
+
+    //Same order as Cursor.getMetrics()
+    public void set(int row, boolean isBuggy, int[] metrics, long fileAge) {
+        Columns c = writable();
+
+        c.size[row] = metrics[0];
+        c.touchingCommits[row] = metrics[1];
+        c.numOfAuthors[row] = metrics[2];
+        c.bugFixes[row] = metrics[3];
+        c.changeSetSize[row] = metrics[4];
+        c.maxChangeSetSize[row] = metrics[5];
+        c.avgChangeSetSize[row] = metrics[6];
+        c.addedLoc[row] = metrics[7];
+        c.age[row] = fileAge;
+        c.buggy.set(row, isBuggy);
+    }
+
+    public Cursor cursor() {
+        return new Cursor(this);
+    }
+
+    public int getFileId(int row) {
+        return columns().fileIds[row];
+    }
+
+    public String getName(int row) {
+        return this.paths.getPath(columns().fileIds[row]);
+    }
+
+    public int getSize(int row) {
+        return columns().size[row];
+    }
+
+    public int getTouchingCommits(int row) {
+        return columns().touchingCommits[row];
+    }
+
+    public int getNumOfAuthors(int row) {
+        return columns().numOfAuthors[row];
+    }
+
+    public int getBugFixes(int row) {
+        return columns().bugFixes[row];
+    }
+
+    public long getAge(int row) {
+        return columns().age[row];
+    }
+
+    public int getChangeSetSize(int row) {
+        return columns().changeSetSize[row];
+    }
+
+    public int getMaxChangeSetSize(int row) {
+        return columns().maxChangeSetSize[row];
+    }
+
+    public int getAvgChangeSetSize(int row) {
+        return columns().avgChangeSetSize[row];
+    }
+
+    public int getAddedLoc(int row) {
+        return columns().addedLoc[row];
+    }
+
+    public boolean isBuggy(int row) {
+        return columns().buggy.get(row);
+    }
+
+    public void setSize(int row, int value) {
+        writable().size[row] = value;
+    }
+
+    public void setNumOfAuthors(int row, int value) {
+        writable().numOfAuthors[row] = value;
+    }
+
+    public void setAge(int row, long value) {
+        writable().age[row] = value;
+    }
+
+    public void setBugFixes(int row, int value) {
+        writable().bugFixes[row] = value;
+    }
+
+    public void incrTouchingCommits(int row) {
+        writable().touchingCommits[row]++;
+    }
+
+    public void incrAddedLoc(int row, int value) {
+        Columns c = writable();
+
+        c.addedLoc[row] = c.addedLoc[row] + value;
+    }
+
+    public void addChangeSetSize(int row, int value) {
+        Columns c = writable();
+
+        c.changeSetSize[row] = c.changeSetSize[row] + value;
+
+        if (c.changeSetSize[row] > c.maxChangeSetSize[row]) {
+            c.maxChangeSetSize[row] = c.changeSetSize[row];
+        }
+
+        c.avgChangeSetSize[row] = ((c.avgChangeSetSize[row] * (c.touchingCommits[row] - 1)) + c.changeSetSize[row]) / (c.touchingCommits[row]);
+    }
+
+    public void setBuggy(int row) {
+        writable().buggy.set(row);
+    }
+
+    //Read cursor over the rows: one instance is moved along the whole release
+    public static class Cursor {
+        private final ReleaseMetrics metrics;
+        private int row;
+
+        Cursor(ReleaseMetrics metrics) {
+            this.metrics = metrics;
+            this.row = -1;
+        }
+
+        public boolean next() {
+            if (this.row + 1 >= this.metrics.size()) {
+                return false;
+            }
+
+            this.row++;
+            return true;
+        }
+
+        public void moveTo(int row) {
+            this.row = row;
+        }
+
+        public int getRow() {
+            return this.row;
+        }
+
+        //Same order as ReleaseMetrics.set()
+        public int[] getMetrics() {
+            return new int[]{getSize(), getTouchingCommits(), getNumOfAuthors(), getBugFixes(), getChangeSetSize(), getMaxChangeSetSize(), getAvgChangeSetSize(), getAddedLoc()};
+        }
+
+        public int getAddedLoc() {
+            return this.metrics.getAddedLoc(this.row);
+        }
+
+        public int getAvgChangeSetSize() {
+            return this.metrics.getAvgChangeSetSize(this.row);
+        }
+
+        public int getMaxChangeSetSize() {
+            return this.metrics.getMaxChangeSetSize(this.row);
+        }
+
+        public int getChangeSetSize() {
+            return this.metrics.getChangeSetSize(this.row);
+        }
+
+        public int getBugFixes() {
+            return this.metrics.getBugFixes(this.row);
+        }
+
+        public int getTouchingCommits() {
+            return this.metrics.getTouchingCommits(this.row);
+        }
+
+        public long getAge() {
+            return this.metrics.getAge(this.row);
+        }
+
+        public int getSize() {
+            return this.metrics.getSize(this.row);
+        }
+
+        public int getNumOfAuthors() {
+            return this.metrics.getNumOfAuthors(this.row);
+        }
+
+        public String getName() {
+            return this.metrics.getName(this.row);
+        }
+
+        public boolean isBuggy() {
+            return this.metrics.isBuggy(this.row);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package utility;
+
+import weka.core.Instances;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ReleaseSetStore {
+    private Instances data;
+    private final List<Integer> ends;
+
+    public ReleaseSetStore() {
+        this.data = null;
+        this.ends = new ArrayList<>();
+    }
+
+    //Releases are appended in index order and every instance is stored only once.
+    //All the releases must be appended before the store is shared among threads
+    public void append(Instances release) {
+        if (this.data == null) {
+            this.data = new Instances(release, release.numInstances() * 4);
+            this.data.setClassIndex(release.numAttributes() - 1);
+        }
+
+        this.data.addAll(release);
+        this.ends.add(this.data.numInstances());
+    }
+
+    public int numReleases() {
+        return this.ends.size();
+    }
+
+    private int getStart(int index) {
+        return index == 1 ? 0 : this.ends.get(index - 2);
+    }
+
+    //Cumulative training window made of the releases 1..numTraining, read only
+    public int getTrainingSize(int numTraining) {
+        return this.ends.get(numTraining - 1);
+    }
+
+    //Whole store, read only: the first getTrainingSize(n) instances are the training window of step n
+    public Instances getData() {
+        return this.data;
+    }
+
+    public Instances copyTraining(int numTraining) {
+        Instances training = new Instances(this.data, 0, getTrainingSize(numTraining));
+        training.setClassIndex(this.data.classIndex());
+        return training;
+    }
+
+    public Instances copyRelease(int index) {
+        Instances release = new Instances(this.data, getStart(index), this.ends.get(index - 1) - getStart(index));
+        release.setClassIndex(this.data.classIndex());
+        return release;
+    }
+}
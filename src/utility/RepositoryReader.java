@@ -0,0 +1,27 @@
+package utility;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+public interface RepositoryReader extends Closeable {
+    String SOURCE_SUFFIX = ".java";
+
+    //Source files existing in the tree of the given commit
+    List<TreeEntry> listFiles(String commitHash) throws IOException;
+
+    //Numstat of the source files modified by the given commit
+    List<ChangeEntry> listChanges(String commitHash) throws IOException;
+
+    //Number of lines (as "wc -l") of every given blob, read in a single pass
+    Map<String, Integer> countLines(Collection<String> blobIds) throws IOException;
+
+    static RepositoryReader create(String repositoryPath) throws IOException {
+        if (Configuration.getString("reader", "jgit").equals("shell")) {
+            return new ShellRepositoryReader(repositoryPath);
+        }
+        return new JGitRepositoryReader(repositoryPath);
+    }
+}
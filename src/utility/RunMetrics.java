@@ -0,0 +1,218 @@
+package utility;
+
+import org.json.JSONObject;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+//Timers and counters of the whole run, shared by every thread
+//Exported as a JSON and CSV report at the end of the run and, with metrics.jmx, through JMX while running
+public class RunMetrics {
+    public static final String PROCESSES = "git.processes";
+    public static final String GIT_BYTES = "git.bytes";
+    public static final String JIRA_BYTES = "jira.bytes";
+    public static final String ROWS = "rows.written";
+    private static final Logger logger = Logger.getLogger(RunMetrics.class.getName());
+    private static final double NANOS_PER_MILLI = 1e6;
+    private static final Map<String, LongAdder> counters = new ConcurrentSkipListMap<>();
+    private static final Map<String, Timer> timers = new ConcurrentSkipListMap<>();
+    private static final LocalDateTime started = LocalDateTime.now();
+
+    static {
+        if (Configuration.getBoolean("metrics.jmx", false)) {
+            register();
+        }
+    }
+
+    private RunMetrics() {
+    }
+
+    private static void register() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new Bean(), new ObjectName("d2isw2:type=RunMetrics"));
+        } catch (JMException e) {
+            logger.log(Level.WARNING, "Run metrics not registered in JMX", e);
+        }
+    }
+
+    public static void increment(String name, long delta) {
+        counters.computeIfAbsent(name, k -> new LongAdder()).add(delta);
+    }
+
+    public static long getCount(String name) {
+        LongAdder counter = counters.get(name);
+
+        return counter == null ? 0 : counter.sum();
+    }
+
+    //Elapsed time of the phase, recorded even if it fails
+    public static <T, E extends Exception> T time(String name, Phase<T, E> phase) throws E {
+        Timer timer = timers.computeIfAbsent(name, k -> new Timer());
+        long start = System.nanoTime();
+
+        try {
+            return phase.call();
+        } finally {
+            timer.record(System.nanoTime() - start);
+        }
+    }
+
+    public static <E extends Exception> void time(String name, Step<E> step) throws E {
+        time(name, () -> {
+            step.run();
+            return null;
+        });
+    }
+
+    //Bytes read from the stream are added to the counter
+    public static InputStream counting(InputStream in, String name) {
+        LongAdder counter = counters.computeIfAbsent(name, k -> new LongAdder());
+
+        return new FilterInputStream(in) {
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+
+                if (b != -1) {
+                    counter.increment();
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int read = super.read(b, off, len);
+
+                if (read > 0) {
+                    counter.add(read);
+                }
+                return read;
+            }
+
+            @Override
+            public long skip(long n) throws IOException {
+                long skipped = super.skip(n);
+
+                counter.add(skipped);
+                return skipped;
+            }
+        };
+    }
+
+    public static JSONObject toJSON(String projectName) {
+        JSONObject report = new JSONObject();
+        JSONObject timerReport = new JSONObject();
+        JSONObject counterReport = new JSONObject();
+        JSONObject item;
+
+        for (Map.Entry<String, Timer> timer : timers.entrySet()) {
+            item = new JSONObject();
+            item.put("count", timer.getValue().count.sum());
+            item.put("totalMillis", timer.getValue().getTotalMillis());
+            item.put("meanMillis", timer.getValue().getMeanMillis());
+            item.put("maxMillis", timer.getValue().max.get() / NANOS_PER_MILLI);
+            timerReport.put(timer.getKey(), item);
+        }
+        for (Map.Entry<String, LongAdder> counter : counters.entrySet()) {
+            counterReport.put(counter.getKey(), counter.getValue().sum());
+        }
+
+        report.put("project", projectName);
+        report.put("started", started.toString());
+        report.put("timers", timerReport);
+        report.put("counters", counterReport);
+        return report;
+    }
+
+    //<name>_Run.json and <name>_Run.csv in the directory, replacing the report of the previous run
+    public static void writeReport(Path directory, String projectName) throws IOException {
+        Files.createDirectories(directory);
+
+        try (Writer writer = Files.newBufferedWriter(directory.resolve(projectName + "_Run.json"), StandardCharsets.UTF_8)) {
+            toJSON(projectName).write(writer, 2, 0);
+        }
+
+        try (Writer writer = Files.newBufferedWriter(directory.resolve(projectName + "_Run.csv"), StandardCharsets.UTF_8)) {
+            writer.append("Kind,Name,Count,Total (ms),Mean (ms),Max (ms)\n");
+            for (Map.Entry<String, Timer> timer : timers.entrySet()) {
+                writer.append("timer,").append(timer.getKey()).append(",")
+                        .append(Long.toString(timer.getValue().count.sum())).append(",")
+                        .append(String.format("%.3f", timer.getValue().getTotalMillis())).append(",")
+                        .append(String.format("%.3f", timer.getValue().getMeanMillis())).append(",")
+                        .append(String.format("%.3f", timer.getValue().max.get() / NANOS_PER_MILLI)).append("\n");
+            }
+            for (Map.Entry<String, LongAdder> counter : counters.entrySet()) {
+                writer.append("counter,").append(counter.getKey()).append(",")
+                        .append(Long.toString(counter.getValue().sum())).append(",,,\n");
+            }
+        }
+    }
+
+    private static class Timer {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder total = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        private void record(long nanos) {
+            this.count.increment();
+            this.total.add(nanos);
+            this.max.accumulate(nanos);
+        }
+
+        private double getTotalMillis() {
+            return this.total.sum() / NANOS_PER_MILLI;
+        }
+
+        private double getMeanMillis() {
+            long n = this.count.sum();
+
+            return n == 0 ? 0 : getTotalMillis() / n;
+        }
+    }
+
+    public interface Phase<T, E extends Exception> {
+        T call() throws E;
+    }
+
+    public interface Step<E extends Exception> {
+        void run() throws E;
+    }
+
+    private static class Bean implements RunMetricsMXBean {
+        @Override
+        public Map<String, Long> getCounters() {
+            Map<String, Long> values = new LinkedHashMap<>();
+
+            for (Map.Entry<String, LongAdder> counter : counters.entrySet()) {
+                values.put(counter.getKey(), counter.getValue().sum());
+            }
+            return values;
+        }
+
+        @Override
+        public Map<String, Double> getTimerMillis() {
+            Map<String, Double> values = new LinkedHashMap<>();
+
+            for (Map.Entry<String, Timer> timer : timers.entrySet()) {
+                values.put(timer.getKey(), timer.getValue().getTotalMillis());
+            }
+            return values;
+        }
+    }
+}
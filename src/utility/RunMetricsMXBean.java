@@ -0,0 +1,10 @@
+package utility;
+
+import java.util.Map;
+
+//Run metrics exposed through JMX while the run is in progress
+public interface RunMetricsMXBean {
+    Map<String, Long> getCounters();
+
+    Map<String, Double> getTimerMillis();
+}
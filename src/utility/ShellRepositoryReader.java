@@ -0,0 +1,110 @@
+package utility;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+//Reads the repository through the git command line, piping every request into long lived git processes
+//Extraction threads borrow a session each, so the processes are never shared while in use
+public class ShellRepositoryReader implements RepositoryReader {
+    private static final int MAX_TREES = 100000;
+    private final String repositoryPath;
+    private final Map<String, List<String[]>> trees;
+    private final Deque<GitBatchSession> idle;
+    private final List<GitBatchSession> sessions;
+
+    public ShellRepositoryReader(String repositoryPath) {
+        this.repositoryPath = repositoryPath;
+        this.trees = Collections.synchronizedMap(new LinkedHashMap<String, List<String[]>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, List<String[]>> eldest) {
+                return size() > MAX_TREES;
+            }
+        });
+        this.idle = new ArrayDeque<>();
+        this.sessions = new ArrayList<>();
+    }
+
+    private synchronized GitBatchSession borrow() {
+        GitBatchSession session = this.idle.pollFirst();
+
+        if (session == null) {
+            session = new GitBatchSession(this.repositoryPath, this.trees);
+            this.sessions.add(session);
+        }
+        return session;
+    }
+
+    private synchronized void giveBack(GitBatchSession session) {
+        this.idle.addFirst(session);
+    }
+
+    //A failed request leaves the processes in an unknown state
+    private synchronized void discard(GitBatchSession session) {
+        session.close();
+        this.sessions.remove(session);
+    }
+
+    @Override
+    public List<TreeEntry> listFiles(String commitHash) throws IOException {
+        GitBatchSession session = borrow();
+        List<TreeEntry> result;
+
+        try {
+            result = session.listFiles(commitHash);
+        } catch (IOException e) {
+            discard(session);
+            throw e;
+        }
+
+        giveBack(session);
+        return result;
+    }
+
+    @Override
+    public List<ChangeEntry> listChanges(String commitHash) throws IOException {
+        GitBatchSession session = borrow();
+        List<ChangeEntry> result;
+
+        try {
+            result = session.listChanges(commitHash);
+        } catch (IOException e) {
+            discard(session);
+            throw e;
+        }
+
+        giveBack(session);
+        return result;
+    }
+
+    @Override
+    public Map<String, Integer> countLines(Collection<String> blobIds) throws IOException {
+        GitBatchSession session = borrow();
+        Map<String, Integer> result;
+
+        try {
+            result = session.countLines(blobIds);
+        } catch (IOException e) {
+            discard(session);
+            throw e;
+        }
+
+        giveBack(session);
+        return result;
+    }
+
+    @Override
+    public synchronized void close() {
+        for (GitBatchSession session : this.sessions) {
+            session.close();
+        }
+        this.sessions.clear();
+        this.idle.clear();
+    }
+}
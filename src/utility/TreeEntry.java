@@ -0,0 +1,19 @@
+package utility;
+
+public class TreeEntry {
+    private final String path;
+    private final String blobId;
+
+    public TreeEntry(String path, String blobId) {
+        this.path = path;
+        this.blobId = blobId;
+    }
+
+    public String getPath() {
+        return this.path;
+    }
+
+    public String getBlobId() {
+        return this.blobId;
+    }
+}